@@ -0,0 +1,233 @@
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Best known solutions of every level, one with the fewest pushes and one with the fewest moves, used as
+ * the reference scores of the levels.
+ * <p>
+ * The solutions are kept in Solutions/best.txt, one per line: "level cost moves pushes line", where cost is
+ * pushes or moves, and line is a string of L, R, U, and D. Blank lines and lines starting with # are
+ * skipped. They are computed offline by the bounded search of the Solver, and every line is replayed with
+ * a GameEngine before it is kept, so a stored score is always the score of its line. A line found by either
+ * search competes under both costs, so a push-optimal line is replaced by a shorter one with as few pushes.
+ * <p>
+ * Usage: java BestSolutions [-maxNodes N] [-verify] [level...] to search every level, or the given ones, and
+ * keep the solutions better than the stored ones, or with -verify to replay the stored ones
+ * */
+public class BestSolutions {
+    private final File file;
+    private final HashMap<Long, Entry> entries = new HashMap<>();
+
+    /**
+     * A solution with its score
+     *
+     * @param level Level number
+     * @param cost Cost the solution is the best known for
+     * @param moves Number of moves
+     * @param pushes Number of pushes
+     * @param line Move string made of L, R, U, and D
+     */
+    public record Entry(int level, Solver.Cost cost, int moves, int pushes, String line) {
+    }
+
+    /**
+     * Read the best known solutions of a file, none if the file does not exist yet
+     *
+     * @param file Solutions file
+     * @throws IOException If the file cannot be read or a line is malformed
+     */
+    public BestSolutions(File file) throws IOException {
+        this.file = file;
+        if (!file.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            int number = 0;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] tokens = line.split("\\s+");
+                try {
+                    offer(new Entry(Integer.parseInt(tokens[0]), Solver.Cost.valueOf(tokens[1].toUpperCase()),
+                            Integer.parseInt(tokens[2]), Integer.parseInt(tokens[3]), tokens.length > 4 ? tokens[4] : ""));
+                } catch (RuntimeException err) {
+                    throw new IOException(file + ":" + number + ": malformed solution", err);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the Solutions/best.txt file of the directory given by -Dgame.dir
+     *
+     * @return Solutions file
+     */
+    public static File defaultFile() {
+        return new File(new File(System.getProperty("game.dir", "src"), "Solutions"), "best.txt");
+    }
+
+    private static long key(int level, Solver.Cost cost) {
+        return (long) level << 1 | cost.ordinal();
+    }
+
+    /**
+     * Return the best known solution of a level
+     *
+     * @param level Level number
+     * @param cost PUSHES or MOVES
+     * @return Solution, or null if none is known
+     */
+    public synchronized Entry get(int level, Solver.Cost cost) {
+        return entries.get(key(level, cost));
+    }
+
+    /**
+     * Keep a solution if it is better than the best known one for its cost
+     *
+     * @param entry Solution, already verified
+     * @return If the solution was kept true, otherwise false
+     */
+    public synchronized boolean offer(Entry entry) {
+        Entry known = entries.get(key(entry.level(), entry.cost()));
+        if (known != null && entry.cost().compare(entry.moves(), entry.pushes(), known.moves(), known.pushes()) >= 0) {
+            return false;
+        }
+        entries.put(key(entry.level(), entry.cost()), entry);
+        return true;
+    }
+
+    /**
+     * Return every solution by level, the push-optimal one first
+     *
+     * @return Solutions
+     */
+    public synchronized List<Entry> getEntries() {
+        return entries.values().stream()
+                .sorted(Comparator.comparingInt(Entry::level).thenComparing(Entry::cost))
+                .toList();
+    }
+
+    /**
+     * Write the solutions to the file, replacing it in one step
+     *
+     * @throws IOException If the file cannot be written
+     */
+    public void save() throws IOException {
+        File temp = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        try (Writer out = new BufferedWriter(new FileWriter(temp))) {
+            out.write("# Best known solutions: level, cost, moves, pushes, then the moves\r\n");
+            for (Entry entry : getEntries()) {
+                out.write(entry.level() + " " + entry.cost().name().toLowerCase() + " " + entry.moves() + " "
+                        + entry.pushes() + " " + entry.line() + "\r\n");
+            }
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException err) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Replay a move string and score it
+     *
+     * @param engine Engine to replay with
+     * @param level Level number
+     * @param cost Cost of the solution
+     * @param line Move string made of L, R, U, and D
+     * @return Scored solution, or null if the level cannot be started or the line does not solve it with every
+     * one of its moves
+     */
+    public static Entry verify(GameEngine engine, int level, Solver.Cost cost, String line) {
+        GameEngine.Result result = engine.play(level, line);
+        if (result == null || !result.isWon() || result.getBlocked() > 0 || result.getMoves() != line.length()) {
+            return null;
+        }
+        return new Entry(level, cost, result.getMoves(), result.getPushes(), line);
+    }
+
+    /**
+     * Search the levels for better solutions, or replay the stored ones with -verify, exiting with a
+     * non-zero status if a stored solution does not solve its level
+     *
+     * @param args Options and level numbers
+     */
+    public static void main(String[] args) throws IOException {
+        long maxNodes = 2_000_000;
+        boolean verify = false;
+        List<Integer> levels = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-maxNodes" -> maxNodes = Long.parseLong(args[++i]);
+                case "-verify" -> verify = true;
+                default -> levels.add(Integer.parseInt(args[i]));
+            }
+        }
+        GameEngine engine = new GameEngine(15, 15);
+        if (levels.isEmpty()) {
+            for (int num = 1; num <= engine.getGameLogic().getLevels().getLevelCount(); num++) {
+                levels.add(num);
+            }
+        }
+
+        File file = defaultFile();
+        BestSolutions best = new BestSolutions(file);
+        if (verify) {
+            int failures = 0;
+            for (Entry entry : best.getEntries()) {
+                Entry replayed = verify(engine, entry.level(), entry.cost(), entry.line());
+                if (replayed == null || replayed.moves() != entry.moves() || replayed.pushes() != entry.pushes()) {
+                    System.out.println("FAIL level " + entry.level() + " " + entry.cost().name().toLowerCase()
+                            + (replayed == null ? ": does not solve the level" : ": scores " + replayed.moves()
+                            + " moves and " + replayed.pushes() + " pushes"));
+                    failures++;
+                }
+            }
+            System.out.println(best.getEntries().size() + " solutions, " + failures + " failures");
+            if (failures > 0) {
+                System.exit(1);
+            }
+            return;
+        }
+
+        boolean changed = false;
+        for (int level : levels) {
+            for (Solver.Cost cost : Solver.Cost.values()) {
+                if (!engine.startLevel(level)) {
+                    System.out.printf("Level %d: could not be started%n", level);
+                    break;
+                }
+                Solver.Result result = new Solver(engine.getGameLogic(), maxNodes, ForkJoinPool.commonPool(), cost).solve();
+                Entry entry = result.isSolved() ? verify(engine, level, cost, result.getMoves()) : null;
+                if (entry == null) {
+                    System.out.printf("Level %d %s: no solution after %d states%n", level, cost.name().toLowerCase(),
+                            result.getNodes());
+                    continue;
+                }
+                boolean kept = false;
+                for (Solver.Cost other : Solver.Cost.values()) {
+                    kept |= best.offer(new Entry(level, other, entry.moves(), entry.pushes(), entry.line()));
+                }
+                changed |= kept;
+                System.out.printf("Level %d %s: %d moves, %d pushes, %d states, %d ms%s%n", level,
+                        cost.name().toLowerCase(), entry.moves(), entry.pushes(), result.getNodes(), result.getMillis(),
+                        kept ? ", new best" : "");
+            }
+        }
+        if (changed) {
+            file.getAbsoluteFile().getParentFile().mkdirs();
+            best.save();
+        }
+    }
+}
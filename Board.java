@@ -0,0 +1,221 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compact primitive grid of the game. Each cell is stored as a single byte holding the block type
+ * and the SOLUTION squares are kept in a separate bitset, so a board can be copied, hashed and compared
+ * with a few array operations.
+ * <p>
+ * Types
+ * 0: Nothing
+ * 1: Player
+ * 2: Wall
+ * 3: Pushable object
+ * <p>
+ * Cells are indexed as row * col + column, the same order as GameLogic coordinates (X, Y).
+ * */
+public class Board {
+    private final int row;
+    private final int col;
+    private final byte[] cells;
+    private final long[] goals;
+
+    /**
+     * Initialize an empty board of the given size
+     *
+     * @param row Rows of the board
+     * @param col Columns of the board
+     */
+    public Board(int row, int col) {
+        this.row = row;
+        this.col = col;
+        cells = new byte[row * col];
+        goals = new long[(row * col + 63) >>> 6];
+    }
+
+    /**
+     * Initialize a board as a copy of another board
+     *
+     * @param other Board to copy
+     */
+    public Board(Board other) {
+        row = other.row;
+        col = other.col;
+        cells = other.cells.clone();
+        goals = other.goals.clone();
+    }
+
+    /**
+     * Return the number of rows
+     *
+     * @return Rows of the board
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * Return the number of columns
+     *
+     * @return Columns of the board
+     */
+    public int getCol() {
+        return col;
+    }
+
+    /**
+     * Return the cell index of the given coordinate
+     *
+     * @param x Coordinate X on the board
+     * @param y Coordinate Y on the board
+     * @return Cell index
+     */
+    public int index(int x, int y) {
+        return x * col + y;
+    }
+
+    /**
+     * Return the block type of the given coordinate
+     *
+     * @param x Coordinate X on the board
+     * @param y Coordinate Y on the board
+     * @return Block type
+     */
+    public int getType(int x, int y) {
+        return cells[x * col + y];
+    }
+
+    /**
+     * Return the block type of the given cell index
+     *
+     * @param cell Cell index
+     * @return Block type
+     */
+    public int getType(int cell) {
+        return cells[cell];
+    }
+
+    /**
+     * Set the block type of the given coordinate
+     *
+     * @param x Coordinate X on the board
+     * @param y Coordinate Y on the board
+     * @param type Block type
+     */
+    public void setType(int x, int y, int type) {
+        cells[x * col + y] = (byte) type;
+    }
+
+    /**
+     * Check if the given coordinate is a SOLUTION square
+     *
+     * @param x Coordinate X on the board
+     * @param y Coordinate Y on the board
+     * @return If it is a solution true, otherwise false
+     */
+    public boolean isGoal(int x, int y) {
+        int cell = x * col + y;
+        return (goals[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Mark or unmark the given coordinate as a SOLUTION square
+     *
+     * @param x Coordinate X on the board
+     * @param y Coordinate Y on the board
+     * @param goal If the coordinate is a solution
+     */
+    public void setGoal(int x, int y, boolean goal) {
+        int cell = x * col + y;
+        if (goal) {
+            goals[cell >>> 6] |= 1L << cell;
+        } else {
+            goals[cell >>> 6] &= ~(1L << cell);
+        }
+    }
+
+    /**
+     * Reset every cell to nothing and remove every SOLUTION square
+     */
+    public void clear() {
+        Arrays.fill(cells, (byte) 0);
+        Arrays.fill(goals, 0L);
+    }
+
+    /**
+     * Overwrite this board with the content of another board of the same size
+     *
+     * @param other Board to copy from
+     */
+    public void copyFrom(Board other) {
+        System.arraycopy(other.cells, 0, cells, 0, cells.length);
+        System.arraycopy(other.goals, 0, goals, 0, goals.length);
+    }
+
+    /**
+     * Return a copy of this board
+     *
+     * @return New board with the same content
+     */
+    public Board copy() {
+        return new Board(this);
+    }
+
+    /**
+     * Write the board: rows and columns as shorts, the block types at 2 bits per cell, then the SOLUTION bitset
+     *
+     * @param out Output to write to
+     * @throws IOException If writing fails
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeShort(row);
+        out.writeShort(col);
+        for (int i = 0; i < cells.length; i += 4) {
+            int packed = 0;
+            for (int k = 0; k < 4 && i + k < cells.length; k++) {
+                packed |= (cells[i + k] & 3) << (2 * k);
+            }
+            out.writeByte(packed);
+        }
+        for (long word : goals) {
+            out.writeLong(word);
+        }
+    }
+
+    /**
+     * Read a board written by write()
+     *
+     * @param in Input to read from
+     * @return New board
+     * @throws IOException If reading fails
+     */
+    public static Board read(DataInput in) throws IOException {
+        Board board = new Board(in.readUnsignedShort(), in.readUnsignedShort());
+        for (int i = 0; i < board.cells.length; i += 4) {
+            int packed = in.readUnsignedByte();
+            for (int k = 0; k < 4 && i + k < board.cells.length; k++) {
+                board.cells[i + k] = (byte) ((packed >>> (2 * k)) & 3);
+            }
+        }
+        for (int i = 0; i < board.goals.length; i++) {
+            board.goals[i] = in.readLong();
+        }
+        return board;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(cells) + Arrays.hashCode(goals);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Board other)) {
+            return false;
+        }
+        return row == other.row && col == other.col
+                && Arrays.equals(cells, other.cells) && Arrays.equals(goals, other.goals);
+    }
+}
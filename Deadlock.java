@@ -0,0 +1,204 @@
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Deadlock detection for the level loaded in a GameLogic.
+ * <p>
+ * When a level is loaded, every cell gets the number of pushes needed to bring a PUSHABLE OBJECT from
+ * that cell to the closest SOLUTION, found by pulling from every SOLUTION. A cell no SOLUTION can be
+ * reached from is a dead square: a PUSHABLE OBJECT pushed there can never be solved.
+ * <p>
+ * After a push, the freeze check looks for PUSHABLE OBJECTS that can no longer move along either axis
+ * because of WALLS, dead squares, or other frozen PUSHABLE OBJECTS. A frozen group with one PUSHABLE
+ * OBJECT off a SOLUTION is a deadlock.
+ * <p>
+ * Cells are indexed as row * col + column like the Board.
+ * */
+public class Deadlock {
+    /* Direction offsets in the same order as GameLogic.direction */
+    private static final int[] DX = {-1, 1, 0, 0};
+    private static final int[] DY = {0, 0, -1, 1};
+
+    private final int cells;
+    private final int[] next;
+    private final int[] distance;
+    private final long[] goals;
+    private final int[] visiting;
+    private int mark;
+    private boolean offGoal;
+
+    /**
+     * Precompute the push distances and the dead squares of the level in the given GameLogic
+     *
+     * @param gameLogic GameLogic with a started level
+     */
+    public Deadlock(GameLogic gameLogic) {
+        int row = gameLogic.getRow();
+        int col = gameLogic.getCol();
+        cells = row * col;
+        next = new int[cells * 4];
+        goals = new long[(cells + 63) >>> 6];
+        visiting = new int[cells];
+        for (int i = 0; i < row; i++) {
+            for (int j = 0; j < col; j++) {
+                int cell = i * col + j;
+                for (int d = 0; d < 4; d++) {
+                    int x = i + DX[d];
+                    int y = j + DY[d];
+                    boolean open = gameLogic.isInside(x, y) && gameLogic.getBlockType(x, y) != 2;
+                    next[cell * 4 + d] = open ? x * col + y : -1;
+                }
+                if (gameLogic.isSolution(i, j)) {
+                    goals[cell >>> 6] |= 1L << cell;
+                }
+            }
+        }
+
+        distance = new int[cells];
+        Arrays.fill(distance, -1);
+        int[] queue = new int[cells];
+        int[] seen = new int[cells];
+        for (int[] pair : gameLogic.getSolution()) {
+            pull(pair[0] * col + pair[1], queue, seen);
+        }
+    }
+
+    /**
+     * Share the precomputed tables of another Deadlock with separate working memory, so each thread
+     * of a search can run its own freeze checks
+     *
+     * @param other Deadlock to share the tables with
+     */
+    public Deadlock(Deadlock other) {
+        cells = other.cells;
+        next = other.next;
+        distance = other.distance;
+        goals = other.goals;
+        visiting = new int[cells];
+    }
+
+    /**
+     * Breadth first search of pulls from a SOLUTION to lower the push distance of every cell
+     */
+    private void pull(int goal, int[] queue, int[] seen) {
+        Arrays.fill(seen, -1);
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = goal;
+        seen[goal] = 0;
+        while (head < tail) {
+            int cell = queue[head++];
+            if (distance[cell] == -1 || seen[cell] < distance[cell]) {
+                distance[cell] = seen[cell];
+            }
+            for (int d = 0; d < 4; d++) {
+                /* A PUSHABLE OBJECT arrives on cell by a push in direction d from the cell behind it */
+                int from = next[cell * 4 + (d ^ 1)];
+                if (from == -1 || next[from * 4 + (d ^ 1)] == -1 || seen[from] != -1) {
+                    continue;
+                }
+                seen[from] = seen[cell] + 1;
+                queue[tail++] = from;
+            }
+        }
+    }
+
+    /**
+     * Return the number of cells of the level
+     *
+     * @return Number of cells
+     */
+    public int getCells() {
+        return cells;
+    }
+
+    /**
+     * Return the minimum number of pushes from the cell to a SOLUTION, ignoring the other PUSHABLE OBJECTS
+     *
+     * @param cell Cell index
+     * @return Push distance, or -1 for a dead square
+     */
+    public int getDistance(int cell) {
+        return distance[cell];
+    }
+
+    /**
+     * Check if no SOLUTION can be reached from the cell by pushing
+     *
+     * @param cell Cell index
+     * @return If it is a dead square true, otherwise false
+     */
+    public boolean isDeadSquare(int cell) {
+        return distance[cell] < 0;
+    }
+
+    /**
+     * Check if the PUSHABLE OBJECT on the cell is part of a frozen group with one PUSHABLE OBJECT off a SOLUTION
+     *
+     * @param cell Cell index of the PUSHABLE OBJECT
+     * @param box Predicate telling if a cell holds a PUSHABLE OBJECT
+     * @return If the position is deadlocked true, otherwise false
+     */
+    public boolean isFreezeDeadlock(int cell, IntPredicate box) {
+        offGoal = !isGoal(cell);
+        if (++mark == Integer.MAX_VALUE) {
+            Arrays.fill(visiting, 0);
+            mark = 1;
+        }
+        /* The axes are checked separately, each check treats the PUSHABLE OBJECTS it went through as WALLS */
+        boolean frozen = isBlocked(cell, 0, box);
+        if (frozen) {
+            mark++;
+            frozen = isBlocked(cell, 1, box);
+        }
+        return frozen && offGoal;
+    }
+
+    /**
+     * Check if the PUSHABLE OBJECT on the cell, and every PUSHABLE OBJECT in the position, is deadlocked
+     *
+     * @param box Predicate telling if a cell holds a PUSHABLE OBJECT
+     * @return If one PUSHABLE OBJECT is on a dead square or frozen off a SOLUTION true, otherwise false
+     */
+    public boolean isDeadlocked(IntPredicate box) {
+        for (int cell = 0; cell < cells; cell++) {
+            if (box.test(cell) && (isDeadSquare(cell) || isFreezeDeadlock(cell, box))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check if the PUSHABLE OBJECT on the cell cannot move along the axis, 0 for horizontal, 1 for vertical
+     */
+    private boolean isBlocked(int cell, int axis, IntPredicate box) {
+        visiting[cell] = mark;
+        int a = next[cell * 4 + axis * 2];
+        int b = next[cell * 4 + axis * 2 + 1];
+        if (a == -1 || b == -1 || visiting[a] == mark || visiting[b] == mark) {
+            return true;
+        }
+        if (isDeadSquare(a) && isDeadSquare(b)) {
+            return true;
+        }
+        return isBlockedBox(a, 1 - axis, box) || isBlockedBox(b, 1 - axis, box);
+    }
+
+    /**
+     * Check if the neighbour holds a PUSHABLE OBJECT that cannot move along the other axis
+     */
+    private boolean isBlockedBox(int cell, int axis, IntPredicate box) {
+        if (!box.test(cell) || !isBlocked(cell, axis, box)) {
+            return false;
+        }
+        if (!isGoal(cell)) {
+            offGoal = true;
+        }
+        return true;
+    }
+
+    private boolean isGoal(int cell) {
+        return (goals[cell >>> 6] & (1L << cell)) != 0;
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * Counter of the frames drawn per second and of the average time spent drawing one frame,
+ * measured over windows of one second
+ */
+public class FrameCounter {
+    private static final long WINDOW = 1_000_000_000L;
+
+    private long windowStart = System.nanoTime();
+    private int frames;
+    private long drawNanos;
+    private int framesPerSecond;
+    private double frameMillis;
+
+    /**
+     * Record a drawn frame and roll the window over once a second has passed
+     *
+     * @param nanos Time spent drawing the frame in nanoseconds
+     */
+    public void frame(long nanos) {
+        frames++;
+        drawNanos += nanos;
+        long now = System.nanoTime();
+        if (now - windowStart >= WINDOW) {
+            framesPerSecond = (int) Math.round(frames * (double) WINDOW / (now - windowStart));
+            frameMillis = drawNanos / 1_000_000.0 / frames;
+            frames = 0;
+            drawNanos = 0;
+            windowStart = now;
+        }
+    }
+
+    /**
+     * Return the frames drawn during the last complete window
+     *
+     * @return Frames per second
+     */
+    public int getFramesPerSecond() {
+        return framesPerSecond;
+    }
+
+    /**
+     * Return the average time spent drawing a frame during the last complete window
+     *
+     * @return Milliseconds per frame
+     */
+    public double getFrameMillis() {
+        return frameMillis;
+    }
+}
@@ -0,0 +1,164 @@
+import java.util.HashMap;
+
+/**
+ * Headless game that applies move strings to levels without any UI or keyboard, using the same
+ * movement rules as the GamePanel through GameLogic.move.
+ * <p>
+ * The start of every level is kept as a Board after its first load so replaying a level again
+ * does not read the level files again.
+ * */
+public class GameEngine {
+    private final GameLogic gameLogic;
+    private final HashMap<Integer, Board> starts = new HashMap<>();
+
+    /**
+     * Result of applying a move string to a level
+     */
+    public static class Result {
+        private final int level;
+        private final boolean won;
+        private final int moves;
+        private final int pushes;
+        private final int blocked;
+
+        /**
+         * Initialize the result of a replay
+         *
+         * @param level Level number
+         * @param won If every SOLUTION was occupied at the end
+         * @param moves Number of moves applied, blocked moves excluded
+         * @param pushes Number of moves that pushed a PUSHABLE OBJECT
+         * @param blocked Number of moves stopped by a WALL, a block, or the edge of the grid
+         */
+        public Result(int level, boolean won, int moves, int pushes, int blocked) {
+            this.level = level;
+            this.won = won;
+            this.moves = moves;
+            this.pushes = pushes;
+            this.blocked = blocked;
+        }
+
+        /**
+         * Return the level number
+         *
+         * @return Level number
+         */
+        public int getLevel() {
+            return level;
+        }
+
+        /**
+         * Return if the level was won
+         *
+         * @return If won true, otherwise false
+         */
+        public boolean isWon() {
+            return won;
+        }
+
+        /**
+         * Return the number of moves applied
+         *
+         * @return Moves
+         */
+        public int getMoves() {
+            return moves;
+        }
+
+        /**
+         * Return the number of pushes
+         *
+         * @return Pushes
+         */
+        public int getPushes() {
+            return pushes;
+        }
+
+        /**
+         * Return the number of blocked moves
+         *
+         * @return Blocked moves
+         */
+        public int getBlocked() {
+            return blocked;
+        }
+    }
+
+    /**
+     * Initialize the engine with a grid of the given size
+     *
+     * @param row Rows of the grid
+     * @param col Columns of the grid
+     */
+    public GameEngine(int row, int col) {
+        gameLogic = new GameLogic(row, col);
+    }
+
+    /**
+     * Return the GameLogic driven by the engine
+     *
+     * @return GameLogic object
+     */
+    public GameLogic getGameLogic() {
+        return gameLogic;
+    }
+
+    /**
+     * Start the level with the given number, loading the level files only the first time
+     *
+     * @param num Level number
+     * @return If the level was started true, otherwise false if it does not exist or is damaged
+     */
+    public boolean startLevel(int num) {
+        Board start = starts.get(num);
+        if (start == null) {
+            if (!gameLogic.startLevel(num)) {
+                return false;
+            }
+            starts.put(num, gameLogic.getBoard().copy());
+        } else {
+            gameLogic.loadBoard(start);
+        }
+        return true;
+    }
+
+    /**
+     * Start the level and apply the move string until the level is won or the moves run out
+     *
+     * @param num Level number
+     * @param moves Move string made of L, R, U, and D
+     * @return Result of the replay, or null if the level cannot be started
+     */
+    public Result play(int num, String moves) {
+        if (!startLevel(num)) {
+            return null;
+        }
+        return apply(num, moves);
+    }
+
+    /**
+     * Apply the move string to the current state until the level is won or the moves run out
+     *
+     * @param num Level number reported in the result
+     * @param moves Move string made of L, R, U, and D
+     * @return Result of the replay
+     */
+    public Result apply(int num, String moves) {
+        int applied = 0;
+        int pushes = 0;
+        int blocked = 0;
+        boolean won = gameLogic.isSolved();
+        for (int i = 0; i < moves.length() && !won; i++) {
+            switch (gameLogic.move(moves.charAt(i))) {
+                case GameLogic.WALKED -> applied++;
+                case GameLogic.PUSHED -> {
+                    applied++;
+                    pushes++;
+                    won = gameLogic.isSolved();
+                }
+                default -> blocked++;
+            }
+        }
+        return new Result(num, won, applied, pushes, blocked);
+    }
+}
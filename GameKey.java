@@ -2,18 +2,40 @@ import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 
 /**
- * KeyListener class to detect user arrow keys input
+ * KeyListener class to detect user arrow keys input.
+ * <p>
+ * Every key press is added to an InputQueue so presses made faster than the game updates are never lost,
+ * and an optional callback lets the game process the input right away instead of waiting for its next update.
+ * <p>
+ * Characters
+ * L: Left
+ * R: Right
+ * U: Up
+ * D: Down
+ * Z: Undo the last move
+ * Y: Redo the last undone move
+ * F: Show or hide the metrics overlay (F3)
  */
 public class GameKey implements KeyListener {
-    private char key = 'N';
+    private final InputQueue queue = new InputQueue(1024);
+    private Runnable onInput;
 
     /**
-     * Return the current key character
+     * Return the queue of pressed keys
      *
-     * @return Current character key pressed
+     * @return InputQueue of the key characters
      */
-    public char getKey() {
-        return key;
+    public InputQueue getQueue() {
+        return queue;
+    }
+
+    /**
+     * Set the callback run after a key was queued
+     *
+     * @param onInput Callback, or null to only queue the keys
+     */
+    public void setOnInput(Runnable onInput) {
+        this.onInput = onInput;
     }
 
     /**
@@ -26,28 +48,35 @@ public class GameKey implements KeyListener {
     }
 
     /**
-     * Detect inputs of arrow keys from the user: UP, DOWN, LEFT, and RIGHT
+     * Detect inputs of arrow keys from the user: UP, DOWN, LEFT, and RIGHT and queue them
+     * along with Z to undo, Y to redo, and F3 to toggle the metrics overlay
      * Currently only support arrow keys not WASD
      *
      * @param e the event to be processed
      */
     @Override
     public void keyPressed(KeyEvent e) {
-        switch (e.getKeyCode()) {
-            case KeyEvent.VK_LEFT -> key = 'L';
-            case KeyEvent.VK_RIGHT -> key = 'R';
-            case KeyEvent.VK_UP -> key = 'U';
-            case KeyEvent.VK_DOWN -> key = 'D';
+        char key = switch (e.getKeyCode()) {
+            case KeyEvent.VK_LEFT -> 'L';
+            case KeyEvent.VK_RIGHT -> 'R';
+            case KeyEvent.VK_UP -> 'U';
+            case KeyEvent.VK_DOWN -> 'D';
+            case KeyEvent.VK_Z -> 'Z';
+            case KeyEvent.VK_Y -> 'Y';
+            case KeyEvent.VK_F3 -> 'F';
+            default -> 0;
+        };
+        if (key != 0 && queue.offer(key) && onInput != null) {
+            onInput.run();
         }
     }
 
     /**
-     * Stop the mobility of the player by setting the key character to an unknown character
+     * Do absolutely nothing, every press is already queued
      *
      * @param e the event to be processed
      */
     @Override
     public void keyReleased(KeyEvent e) {
-        key = 'N';
     }
 }
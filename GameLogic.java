@@ -1,36 +1,89 @@
 import java.util.ArrayList;
+import java.util.function.IntPredicate;
 
 /**
  * Information class that contains coordinates and types of the player, grid, solution, and levels
+ * along with the movement rules, so the game can run without any UI.
+ * The grid takes the size of every level it loads.
  */
 public class GameLogic {
+    /* Results of move() */
+    public static final int BLOCKED = 0;
+    public static final int WALKED = 1;
+    public static final int PUSHED = 2;
+
+    /* Direction offsets for the input characters L, R, U, and D */
+    private static final int[] DX = {-1, 1, 0, 0};
+    private static final int[] DY = {0, 0, -1, 1};
+
     private Player player;
-    private final Block[][] grid;
-    private int[][] solution;
+    private Board grid;
     private final ArrayList<int[]> solutionPair;
+    /* Every pair ever put in solutionPair, reused when a level is started again */
+    private final ArrayList<int[]> pairs = new ArrayList<>();
     private final Levels levels;
-    private final int row;
-    private final int col;
+    private final LevelCache levelCache;
+    private int row;
+    private int col;
+    /* Coordinates (X, Y) of the cells changed since the last clearDirty(), a move changes at most three */
+    private final int[] dirty = new int[2 * 16];
+    private int dirtyCount;
+    private boolean fullRefresh;
+    /* Number of PUSHABLE OBJECTS standing on a SOLUTION, kept up to date by pushBlock */
+    private int boxesOnGoals;
+    private final MoveJournal journal = new MoveJournal();
+    private Deadlock deadlock;
+    private long deadlockLayout;
+    private final IntPredicate boxTest = this::isBox;
+    private boolean deadlocked;
+    private Zobrist zobrist;
+    private long hash;
+    /* Reachable area of the PLAYER, valid until the next push, and a separate fill for the walks */
+    private Reachability reachability;
+    private Reachability pathfinder;
+    private boolean reachable;
+    private char[] path;
 
     /**
      * Initializing levels to contain information of the current level
+     *              levelCache to keep recent levels in memory and prefetch the next one
      *              solutionPair to contain the paired coordinate solution (X, Y)
-     *              grid to convert levels to Block matrix
+     *              grid to convert levels to a primitive Board
      *
-     * @param row Rows of the game UI
-     * @param col Columns of the game UI
+     * @param row Rows of the grid before the first level is loaded
+     * @param col Columns of the grid before the first level is loaded
      * */
     public GameLogic(int row, int col) {
+        this(row, col, new Levels());
+    }
+
+    /**
+     * Initialize the GameLogic with its own cache of the levels read by the given loader
+     *
+     * @param row Rows of the grid before the first level is loaded
+     * @param col Columns of the grid before the first level is loaded
+     * @param levels Level loader
+     */
+    private GameLogic(int row, int col, Levels levels) {
+        this(row, col, levels, new LevelCache(levels::load, 8));
+    }
+
+    /**
+     * Initialize the GameLogic with a level loader and cache shared with other GameLogic objects,
+     * such as the sessions of a SessionServer. Both are safe to use from several threads.
+     *
+     * @param row Rows of the grid before the first level is loaded
+     * @param col Columns of the grid before the first level is loaded
+     * @param levels Level loader
+     * @param levelCache Cache of the levels read by the loader
+     */
+    public GameLogic(int row, int col, Levels levels, LevelCache levelCache) {
         this.row = row;
         this.col = col;
-        levels = new Levels(row, col);
+        this.levels = levels;
+        this.levelCache = levelCache;
         solutionPair = new ArrayList<>();
-        grid = new Block[row][col];
-        for(int i = 0; i < row; i++) {
-            for(int j = 0; j < col; j++) {
-                grid[i][j] = new Block(0);
-            }
-        }
+        grid = new Board(row, col);
     }
 
     /**
@@ -39,11 +92,47 @@ public class GameLogic {
      * @param row Rows of the game UI
      * @param col Columns of the game UI
      *
-     * @return Block object type
+     * @return Block type, see Board for the types
      * */
     public int getBlockType(int row, int col) {
-        /* Return the type of the BLOCK object see Block class for info on the types */
-        return grid[row][col].getType();
+        /* Return the type of the BLOCK, see Board for info on the types */
+        return grid.getType(row, col);
+    }
+
+    /**
+     * Return the number of rows of the grid
+     *
+     * @return Rows of the grid
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * Return the number of columns of the grid
+     *
+     * @return Columns of the grid
+     */
+    public int getCol() {
+        return col;
+    }
+
+    /**
+     * Return the Levels loader of the GameLogic
+     *
+     * @return Levels object
+     */
+    public Levels getLevels() {
+        return levels;
+    }
+
+    /**
+     * Return the cache of parsed levels of the GameLogic
+     *
+     * @return LevelCache object
+     */
+    public LevelCache getLevelCache() {
+        return levelCache;
     }
 
     /**
@@ -64,8 +153,11 @@ public class GameLogic {
      * @param newCol New column
      */
     public void updatePlayer(int row, int col, int newRow, int newCol) {
-        grid[row][col].setType(0);
-        grid[newRow][newCol].setType(1);
+        grid.setType(row, col, 0);
+        grid.setType(newRow, newCol, 1);
+        hash ^= zobrist.player(grid.index(row, col)) ^ zobrist.player(grid.index(newRow, newCol));
+        markDirty(row, col);
+        markDirty(newRow, newCol);
         player.setX(newRow);
         player.setY(newCol);
     }
@@ -79,8 +171,88 @@ public class GameLogic {
      * @param newCol New column
      */
     public void pushBlock(int row, int col, int newRow, int newCol) {
-        grid[row][col].setType(0);
-        grid[newRow][newCol].setType(3);
+        grid.setType(row, col, 0);
+        grid.setType(newRow, newCol, 3);
+        hash ^= zobrist.box(grid.index(row, col)) ^ zobrist.box(grid.index(newRow, newCol));
+        reachable = false;
+        if (grid.isGoal(row, col)) {
+            boxesOnGoals--;
+        }
+        if (grid.isGoal(newRow, newCol)) {
+            boxesOnGoals++;
+        }
+        /* A box on a dead square or frozen off a solution can never be solved again */
+        int cell = grid.index(newRow, newCol);
+        deadlocked = deadlocked || deadlock.isDeadSquare(cell) || deadlock.isFreezeDeadlock(cell, boxTest);
+        markDirty(row, col);
+        markDirty(newRow, newCol);
+    }
+
+    /**
+     * Remember that the given cell changed, falling back to a full refresh when too many cells changed
+     *
+     * @param row Coordinate X on the grid
+     * @param col Coordinate Y on the grid
+     */
+    private void markDirty(int row, int col) {
+        for (int i = 0; i < dirtyCount; i++) {
+            if (dirty[2 * i] == row && dirty[2 * i + 1] == col) {
+                return;
+            }
+        }
+        if (2 * dirtyCount == dirty.length) {
+            fullRefresh = true;
+        } else {
+            dirty[2 * dirtyCount] = row;
+            dirty[2 * dirtyCount + 1] = col;
+            dirtyCount++;
+        }
+    }
+
+    /**
+     * Return the number of cells changed since the last clearDirty()
+     *
+     * @return Number of changed cells
+     */
+    public int getDirtyCount() {
+        return dirtyCount;
+    }
+
+    /**
+     * Return the X coordinate of the changed cell at the given index
+     *
+     * @param i Index of the changed cell
+     * @return Coordinate X on the grid
+     */
+    public int getDirtyX(int i) {
+        return dirty[2 * i];
+    }
+
+    /**
+     * Return the Y coordinate of the changed cell at the given index
+     *
+     * @param i Index of the changed cell
+     * @return Coordinate Y on the grid
+     */
+    public int getDirtyY(int i) {
+        return dirty[2 * i + 1];
+    }
+
+    /**
+     * Check if the whole grid changed since the last clearDirty(), such as after loading a level
+     *
+     * @return If the whole grid has to be redrawn true, otherwise false
+     */
+    public boolean isFullRefresh() {
+        return fullRefresh;
+    }
+
+    /**
+     * Forget the changed cells once they have been redrawn
+     */
+    public void clearDirty() {
+        dirtyCount = 0;
+        fullRefresh = false;
     }
 
     /**
@@ -91,7 +263,16 @@ public class GameLogic {
      * @return If it is a solution true, otherwise false
      */
     public boolean isSolution(int row, int col) {
-        return solution[row][col] == 1;
+        return grid.isGoal(row, col);
+    }
+
+    /**
+     * Return the Board holding the grid and the solution squares of the current level
+     *
+     * @return Board object
+     */
+    public Board getBoard() {
+        return grid;
     }
 
     /**
@@ -103,30 +284,416 @@ public class GameLogic {
         return solutionPair;
     }
 
+    /**
+     * Return the index of the direction of an input character, see GameKey for the characters
+     *
+     * @param key Input character
+     * @return Direction index into the offset tables, or -1 if it is not a movement
+     */
+    public static int direction(char key) {
+        return switch (key) {
+            case 'L' -> 0;
+            case 'R' -> 1;
+            case 'U' -> 2;
+            case 'D' -> 3;
+            default -> -1;
+        };
+    }
+
+    /**
+     * Move the PLAYER one step in the direction of the input character, pushing a PUSHABLE OBJECT
+     * if there is nothing behind it. WALLS, a PUSHABLE OBJECT blocked by another block, and the edges
+     * of the grid stop the move. Every move made is recorded in the undo history.
+     *
+     * @param key Input character, see GameKey for the characters
+     * @return BLOCKED, WALKED, or PUSHED
+     */
+    public int move(char key) {
+        int d = direction(key);
+        if (d < 0) {
+            return BLOCKED;
+        }
+        int result = step(d);
+        if (result != BLOCKED) {
+            journal.record(d, result == PUSHED);
+        }
+        return result;
+    }
+
+    /**
+     * Take back the last move, pulling back the PUSHABLE OBJECT if it was a push
+     *
+     * @return WALKED or PUSHED for the move taken back, BLOCKED if there is nothing to undo
+     */
+    public int undo() {
+        int code = journal.undo();
+        if (code < 0) {
+            return BLOCKED;
+        }
+        int d = MoveJournal.direction(code);
+        int x = player.getX();
+        int y = player.getY();
+        updatePlayer(x, y, x - DX[d], y - DY[d]);
+        if (MoveJournal.isPush(code)) {
+            pushBlock(x + DX[d], y + DY[d], x, y);
+            deadlocked = deadlock.isDeadlocked(boxTest);
+            return PUSHED;
+        }
+        return WALKED;
+    }
+
+    /**
+     * Play again the last move taken back by undo
+     *
+     * @return WALKED or PUSHED for the move played, BLOCKED if there is nothing to redo
+     */
+    public int redo() {
+        int code = journal.redo();
+        if (code < 0) {
+            return BLOCKED;
+        }
+        return step(MoveJournal.direction(code));
+    }
+
+    /**
+     * Return the undo history of the current level
+     *
+     * @return MoveJournal object
+     */
+    public MoveJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Apply the movement rules in the given direction without recording the move
+     *
+     * @param d Direction index
+     * @return BLOCKED, WALKED, or PUSHED
+     */
+    private int step(int d) {
+        int x = player.getX();
+        int y = player.getY();
+        int nextX = x + DX[d];
+        int nextY = y + DY[d];
+        if (!isInside(nextX, nextY)) {
+            return BLOCKED;
+        }
+        switch (grid.getType(nextX, nextY)) {
+            case 0 -> {
+                updatePlayer(x, y, nextX, nextY);
+                return WALKED;
+            }
+            case 3 -> {
+                int boxX = nextX + DX[d];
+                int boxY = nextY + DY[d];
+                if (isInside(boxX, boxY) && grid.getType(boxX, boxY) == 0) {
+                    pushBlock(nextX, nextY, boxX, boxY);
+                    updatePlayer(x, y, nextX, nextY);
+                    return PUSHED;
+                }
+            }
+        }
+        return BLOCKED;
+    }
+
+    /**
+     * Check if the given coordinate is inside the grid
+     *
+     * @param row Coordinate X on the grid
+     * @param col Coordinate Y on the grid
+     * @return If inside true, otherwise false
+     */
+    public boolean isInside(int row, int col) {
+        return row > -1 && row < this.row && col > -1 && col < this.col;
+    }
+
+    /**
+     * Check if all SOLUTION are occupied by a PUSHABLE OBJECT
+     *
+     * @return If the level is solved true, otherwise false
+     */
+    public boolean isSolved() {
+        return boxesOnGoals == solutionPair.size() && boxesOnGoals > 0;
+    }
+
+    /**
+     * Check if a PUSHABLE OBJECT was pushed into a dead square or frozen off a SOLUTION, which makes the
+     * level impossible to solve without undoing or restarting
+     *
+     * @return If the level is deadlocked true, otherwise false
+     */
+    public boolean isDeadlocked() {
+        return deadlocked;
+    }
+
+    /**
+     * Return the Zobrist hash of the position, updated on every move
+     *
+     * @return Position hash
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Return the Zobrist keys of the grid
+     *
+     * @return Zobrist object
+     */
+    public Zobrist getZobrist() {
+        return zobrist;
+    }
+
+    /**
+     * Return the area the PLAYER can walk to without pushing. Walking does not change the area so it is
+     * only computed again after a push.
+     *
+     * @return Reachability holding the area
+     */
+    public Reachability getReachability() {
+        if (!reachable) {
+            reachability.compute(grid, grid.index(player.getX(), player.getY()));
+            reachable = true;
+        }
+        return reachability;
+    }
+
+    /**
+     * Check if the PLAYER can walk to the given coordinate without pushing
+     *
+     * @param row Coordinate X on the grid
+     * @param col Coordinate Y on the grid
+     * @return If reachable true, otherwise false
+     */
+    public boolean isReachable(int row, int col) {
+        return isInside(row, col) && getReachability().isReachable(grid.index(row, col));
+    }
+
+    /**
+     * Find the shortest walk of the PLAYER to the given coordinate, written in the buffer of getPath()
+     *
+     * @param row Coordinate X on the grid
+     * @param col Coordinate Y on the grid
+     * @return Length of the walk, or -1 if it cannot be reached without pushing
+     */
+    public int findPath(int row, int col) {
+        if (!isReachable(row, col)) {
+            return -1;
+        }
+        int start = grid.index(player.getX(), player.getY());
+        return pathfinder.findPath(grid, start, grid.index(row, col), path);
+    }
+
+    /**
+     * Find the walk of the PLAYER behind the PUSHABLE OBJECT at the given coordinate followed by one push
+     * in the given direction, written in the buffer of getPath()
+     *
+     * @param row Coordinate X of the PUSHABLE OBJECT
+     * @param col Coordinate Y of the PUSHABLE OBJECT
+     * @param key Direction of the push, see GameKey for the characters
+     * @return Length of the moves, or -1 if the push is not possible
+     */
+    public int findPush(int row, int col, char key) {
+        int d = direction(key);
+        if (d < 0 || !isInside(row, col) || grid.getType(row, col) != 3) {
+            return -1;
+        }
+        int destX = row + DX[d];
+        int destY = col + DY[d];
+        if (!isInside(destX, destY) || grid.getType(destX, destY) != 0) {
+            return -1;
+        }
+        int length = findPath(row - DX[d], col - DY[d]);
+        if (length < 0) {
+            return -1;
+        }
+        path[length] = key;
+        return length + 1;
+    }
+
+    /**
+     * Return the buffer holding the moves found by findPath or findPush
+     *
+     * @return Input characters, see GameKey for the characters
+     */
+    public char[] getPath() {
+        return path;
+    }
+
+    /**
+     * Return the deadlock detection of the current level, also usable to prune a search
+     *
+     * @return Deadlock object
+     */
+    public Deadlock getDeadlock() {
+        return deadlock;
+    }
+
+    private boolean isBox(int cell) {
+        return grid.getType(cell) == 3;
+    }
+
+    /**
+     * Return the number of SOLUTION occupied by a PUSHABLE OBJECT
+     *
+     * @return Occupied solutions
+     */
+    public int getBoxesOnGoals() {
+        return boxesOnGoals;
+    }
+
+    /**
+     * Return the number of SOLUTION of the level
+     *
+     * @return Number of solutions
+     */
+    public int getGoalCount() {
+        return solutionPair.size();
+    }
+
+    /**
+     * Check if the SOLUTION at the given index of solutionPair is occupied by a PUSHABLE OBJECT
+     *
+     * @param i Index in solutionPair
+     * @return If occupied true, otherwise false
+     */
+    public boolean isGoalOccupied(int i) {
+        int[] pair = solutionPair.get(i);
+        return grid.getType(pair[0], pair[1]) == 3;
+    }
+
+    /**
+     * Replace the grid with a copy of the given board of the same size, such as the start of a level
+     * saved earlier, and find the solutionPair and the player location again
+     *
+     * @param board Board to copy from
+     */
+    public void loadBoard(Board board) {
+        resize(board.getRow(), board.getCol());
+        grid.copyFrom(board);
+        scanBoard();
+    }
+
+    /**
+     * Replace the grid with an empty one if the size changed, along with the tables sized for the grid
+     *
+     * @param row Rows of the new grid
+     * @param col Columns of the new grid
+     */
+    private void resize(int row, int col) {
+        if (row == this.row && col == this.col) {
+            return;
+        }
+        this.row = row;
+        this.col = col;
+        grid = new Board(row, col);
+        zobrist = null;
+        reachability = null;
+        deadlock = null;
+    }
+
     /**
      * Start the level with the given number to choose which level and solution to load with and populate the grid,
-     * solutionPair, and the player location
+     * solutionPair, and the player location.
+     * The level comes from the LevelCache, and the next level is prefetched in the background.
      *
      * @param num Level number
+     * @return If the level was started true, otherwise false if it does not exist, is damaged, or has no
+     * PLAYER, leaving the previous level as it was
      * */
-    public void startLevel(int num) {
-        solutionPair.clear();
+    public boolean startLevel(int num) {
+        long start = System.nanoTime();
+        LevelData data = levelCache.get(num);
+        if (data == null) {
+            return false;
+        }
+        levelCache.prefetch(num + 1);
 
-        levels.loadLevel(num);
-        levels.loadSolution(num);
+        int[][] level = data.getLevel();
+        int[][] solution = data.getSolution();
+        /* scanBoard only moves the Player to a PLAYER cell, without one it would stay on the previous level */
+        if (!hasPlayer(level)) {
+            return false;
+        }
+        resize(level.length, level.length > 0 ? level[0].length : 0);
 
-        solution = levels.getSolution();
+        for(int i = 0; i < row; i++) {
+            for(int j = 0; j < col; j++) {
+                grid.setType(i, j, level[i][j]);
+                grid.setGoal(i, j, i < solution.length && j < solution[i].length && solution[i][j] == 1);
+            }
+        }
+        scanBoard();
+        Metrics.get().startLevel().recordSince(start);
+        return true;
+    }
+
+    /**
+     * Check if a level matrix holds a PLAYER
+     */
+    private static boolean hasPlayer(int[][] level) {
+        for (int[] line : level) {
+            for (int type : line) {
+                if (type == 1) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Populate solutionPair and the player location from the grid.
+     * The Player, the solution pairs, and the tables of a level started again are reused, so restarting
+     * a level does not allocate.
+     * */
+    private void scanBoard() {
+        solutionPair.clear();
+        dirtyCount = 0;
+        fullRefresh = true;
+        boxesOnGoals = 0;
+        journal.clear();
 
         for(int i = 0; i < row; i++) {
             for(int j = 0; j < col; j++) {
-                grid[i][j].setType(levels.getLevel()[i][j]);
-                if (solution[i][j] == 1) {
-                    solutionPair.add(new int[]{i, j});
+                if (grid.isGoal(i, j)) {
+                    if (pairs.size() == solutionPair.size()) {
+                        pairs.add(new int[2]);
+                    }
+                    int[] pair = pairs.get(solutionPair.size());
+                    pair[0] = i;
+                    pair[1] = j;
+                    solutionPair.add(pair);
+                    if (grid.getType(i, j) == 3) {
+                        boxesOnGoals++;
+                    }
                 }
-                if (grid[i][j].getType() == 1) {
-                    player = new Player(i,j);
+                if (grid.getType(i, j) == 1) {
+                    if (player == null) {
+                        player = new Player(i, j);
+                    } else {
+                        player.setX(i);
+                        player.setY(j);
+                    }
                 }
             }
         }
+        if (zobrist == null) {
+            zobrist = new Zobrist(row * col);
+        }
+        hash = zobrist.hashPosition(grid);
+        /* The dead squares only depend on the WALLS and SOLUTIONS, hashed without the position */
+        long layout = zobrist.hashLevel(grid) ^ hash;
+        if (deadlock == null || layout != deadlockLayout) {
+            deadlock = new Deadlock(this);
+            deadlockLayout = layout;
+        }
+        deadlocked = deadlock.isDeadlocked(boxTest);
+        if (reachability == null) {
+            reachability = new Reachability(row, col);
+            pathfinder = new Reachability(row, col);
+            path = new char[row * col + 1];
+        }
+        reachable = false;
     }
 }
@@ -0,0 +1,207 @@
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Fixed timestep game loop running on its own thread instead of the Swing event thread.
+ * <p>
+ * The update callback is called at a fixed number of ticks per second, catching up with several ticks
+ * when the thread fell behind, and the render callback is paced at its own frame rate and receives the
+ * fraction of the next tick already elapsed so drawing can interpolate between two updates.
+ * The loop measures how far each tick and each frame drifted from its schedule.
+ * <p>
+ * Without a render callback, runHeadless() calls the update callback back to back as fast as possible.
+ * */
+public class GameLoop implements Runnable {
+    /* Ticks allowed in a row before the loop gives up catching up and drops the remaining time */
+    private static final int maxCatchUp = 5;
+
+    private final long tickNanos;
+    private final long frameNanos;
+    private final Runnable update;
+    private final DoubleConsumer render;
+    private volatile boolean running;
+    private Thread thread;
+
+    private volatile long ticks;
+    private volatile long frames;
+    private volatile long tickJitterTotal;
+    private volatile long tickJitterMax;
+    private volatile long frameJitterTotal;
+    private volatile long frameJitterMax;
+
+    /**
+     * Initialize the loop with its rates and callbacks
+     *
+     * @param ticksPerSecond Number of updates per second
+     * @param framesPerSecond Number of frames per second
+     * @param update Callback running one logic tick
+     * @param render Callback drawing a frame given the interpolation between the last and next tick, may be null
+     */
+    public GameLoop(double ticksPerSecond, double framesPerSecond, Runnable update, DoubleConsumer render) {
+        this.tickNanos = (long) (1_000_000_000L / ticksPerSecond);
+        this.frameNanos = (long) (1_000_000_000L / framesPerSecond);
+        this.update = update;
+        this.render = render;
+    }
+
+    /**
+     * Start the loop on a new daemon thread
+     */
+    public void start() {
+        running = true;
+        thread = new Thread(this, "game-loop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Ask the loop to stop after the current iteration
+     */
+    public void stop() {
+        running = false;
+        if (thread != null && thread != Thread.currentThread()) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Check if the loop is running
+     *
+     * @return If running true, otherwise false
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Loop body: run the due ticks, render when a frame is due, then sleep until the next deadline
+     */
+    @Override
+    public void run() {
+        long previous = System.nanoTime();
+        long accumulator = 0;
+        long nextTick = previous + tickNanos;
+        long nextFrame = previous;
+        while (running) {
+            long now = System.nanoTime();
+            accumulator += now - previous;
+            previous = now;
+
+            int steps = 0;
+            while (accumulator >= tickNanos && running) {
+                record(true, System.nanoTime() - nextTick);
+                update.run();
+                accumulator -= tickNanos;
+                nextTick += tickNanos;
+                if (++steps == maxCatchUp) {
+                    /* Too far behind, drop the backlog instead of spiralling */
+                    accumulator = 0;
+                    nextTick = System.nanoTime() + tickNanos;
+                    break;
+                }
+            }
+
+            now = System.nanoTime();
+            if (render != null && now >= nextFrame && running) {
+                record(false, now - nextFrame);
+                render.accept((double) accumulator / tickNanos);
+                nextFrame += frameNanos;
+                if (now - nextFrame > frameNanos) {
+                    nextFrame = now + frameNanos;
+                }
+            }
+
+            long wake = render == null ? nextTick : Math.min(nextTick, nextFrame);
+            long sleep = wake - System.nanoTime();
+            if (sleep > 0) {
+                LockSupport.parkNanos(this, sleep);
+            }
+        }
+    }
+
+    /**
+     * Run the given number of ticks on the calling thread as fast as possible, without rendering
+     *
+     * @param count Number of ticks
+     * @return Ticks per second achieved
+     */
+    public double runHeadless(long count) {
+        long start = System.nanoTime();
+        for (long i = 0; i < count; i++) {
+            update.run();
+        }
+        ticks += count;
+        long elapsed = Math.max(1, System.nanoTime() - start);
+        return count * 1_000_000_000.0 / elapsed;
+    }
+
+    /**
+     * Add the drift of a tick or a frame from its schedule to the statistics
+     */
+    private void record(boolean tick, long late) {
+        long jitter = Math.abs(late);
+        if (tick) {
+            ticks++;
+            tickJitterTotal += jitter;
+            tickJitterMax = Math.max(tickJitterMax, jitter);
+        } else {
+            frames++;
+            frameJitterTotal += jitter;
+            frameJitterMax = Math.max(frameJitterMax, jitter);
+        }
+    }
+
+    /**
+     * Return the number of ticks run
+     *
+     * @return Ticks
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Return the number of frames rendered
+     *
+     * @return Frames
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * Return the average drift of a tick from its schedule
+     *
+     * @return Jitter in milliseconds
+     */
+    public double getTickJitterMillis() {
+        return ticks == 0 ? 0 : tickJitterTotal / 1_000_000.0 / ticks;
+    }
+
+    /**
+     * Return the largest drift of a tick from its schedule
+     *
+     * @return Jitter in milliseconds
+     */
+    public double getMaxTickJitterMillis() {
+        return tickJitterMax / 1_000_000.0;
+    }
+
+    /**
+     * Return the average drift of a frame from its schedule
+     *
+     * @return Jitter in milliseconds
+     */
+    public double getFrameJitterMillis() {
+        return frames == 0 ? 0 : frameJitterTotal / 1_000_000.0 / frames;
+    }
+
+    /**
+     * Return the largest drift of a frame from its schedule
+     *
+     * @return Jitter in milliseconds
+     */
+    public double getMaxFrameJitterMillis() {
+        return frameJitterMax / 1_000_000.0;
+    }
+}
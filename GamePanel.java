@@ -2,33 +2,78 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.ArrayList;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.File;
+import java.io.IOException;
 
 /**
  * Custom component that is used to contain all the main information related to the game UI.
- * Load the resolution at 720x720 pixels.
+ * Load the resolution at 720x720 pixels, a viewport of 15x15 tiles over levels of any size that scrolls
+ * to keep the PLAYER away from its edges. Only the tiles inside the viewport are drawn.
  * Additionally, will pass information to the GameLogic to update and grab information from GameLogic
- * to update the user UI through function draw, and delayed by a 120-millisecond timer.
+ * to update the user UI through function draw, driven by a fixed timestep GameLoop on its own thread.
+ * Key presses are queued by GameKey and applied as soon as they arrive, the loop ticks drain any input
+ * queued from elsewhere. GameLogic is only touched while holding its lock since the loop thread, and the
+ * Swing event thread both use it. Z and Y undo and redo moves without reloading the level.
+ * Clicking a tile walks the PLAYER there along the shortest path, and clicking a PUSHABLE OBJECT walks
+ * behind it and pushes it away from the side of the tile that was clicked.
+ * Only the tiles changed by a move are repainted, and nothing is repainted on idle ticks.
+ * Tiles are blitted from a TileAtlas on top of a pre-rendered background layer of the viewport.
  * <p>
- * Initially will start the game at level 1.
+ * The tile multiplier can be changed with -Dgame.scale=N. F3, or -Dgame.fps=true at start, repaints every tick
+ * and shows an overlay of the frames per second, the loop jitter, the tick, draw, and level start latencies
+ * from Metrics, and the allocation rate to diagnose stutter without a profiler.
+ * The loop rates can be changed with -Dgame.tickRate=N and -Dgame.frameRate=N.
+ * Levels are read from a binary LevelPack instead of the text files with -Dgame.pack=file, or from a
+ * LevelCatalog of a directory or an XSB collection with -Dgame.catalog=path.
+ * With -Dgame.replay=file, every input applied is appended to that ReplayRecorder file. Nothing is
+ * recorded by default.
+ * The progress is saved with SaveState to save.dat in the .puzzle-game folder of the home directory and
+ * resumed at start, changed with -Dgame.save=file, or turned off with -Dgame.save= left empty.
+ * The moves and pushes of every completed level are added to a Leaderboard, scores.dat in the same folder,
+ * changed with -Dgame.scores=file, or turned off with -Dgame.scores= left empty.
+ * <p>
+ * Initially will start the game at level 1, and the user wins after the last level found in the Levels folder.
  * */
 public class GamePanel extends JPanel implements ActionListener {
     /* Modern screen resolution is pretty high so 16x16 is pretty small, so I scaled up the tile by a multiplier */
     static private final int originalTileSize = 16; // 16x16 tile
-    static private final int scale = 3;
+    static private final int scale = Integer.getInteger("game.scale", 3);
     static private final int tileSize = originalTileSize * scale; // 48x48 tile
     static private final int maxScreenCol = 15;
     static private final int maxScreenRow = 15;
     static private final int screenWidth = tileSize * maxScreenCol; // 720 pixels
     static private final int screenHeight = tileSize * maxScreenRow; // 720 pixels
-    private boolean running = false;
-    private Timer timer;
-    private final int delay = 120;
+    /* Tiles kept between the PLAYER and the edge of the viewport before it scrolls */
+    static private final int cameraMargin = 3;
+    private int cameraX;
+    private int cameraY;
+    private volatile boolean running = false;
+    private GameLoop gameLoop;
+    private static final int ticksPerSecond = Integer.getInteger("game.tickRate", 60);
+    private static final int framesPerSecond = Integer.getInteger("game.frameRate", 60);
     private final GameLogic gameLogic;
     private final GameKey gameKey;
     private int currentLevel;
-    private static final int lastLevel = 4;
+    private int lastLevel;
     private final JButton button;
+    private final JLabel goalLabel;
+    private volatile int shownGoals = -1;
+    private static final Font winFont = new Font("Ink Free", Font.BOLD, 75);
+    private static final Font fpsFont = new Font(Font.MONOSPACED, Font.PLAIN, 14);
+    private volatile boolean showFps = Boolean.getBoolean("game.fps");
+    private final Metrics metrics = Metrics.get();
+    private final FrameCounter frameCounter = new FrameCounter();
+    private TileAtlas atlas;
+    private Image background;
+    private boolean backgroundStale = true;
+    private final Rectangle clip = new Rectangle();
+    private ReplayRecorder recorder;
+    private File saveFile;
+    private BestSolutions bestSolutions;
+    private Leaderboard leaderboard;
+    private final String playerName = System.getProperty("game.player", System.getProperty("user.name", ""));
 
     /**
      * Initialize gameKey to add in functionality of KeyListener
@@ -43,10 +88,63 @@ public class GamePanel extends JPanel implements ActionListener {
         setFocusable(true);
         requestFocus();
         addKeyListener(gameKey);
-        startGame();
 
         gameLogic = new GameLogic(maxScreenCol, maxScreenRow);
-        gameLogic.startLevel(currentLevel);
+        String pack = System.getProperty("game.pack");
+        if (pack != null) {
+            try {
+                gameLogic.getLevels().setPack(LevelPack.open(new File(pack)));
+                gameLogic.getLevelCache().clear();
+            } catch (IOException err) {
+                err.printStackTrace();
+            }
+        }
+        String catalog = System.getProperty("game.catalog");
+        if (catalog != null) {
+            try {
+                gameLogic.getLevels().setCatalog(LevelCatalog.open(new File(catalog)));
+                gameLogic.getLevelCache().clear();
+            } catch (IOException err) {
+                err.printStackTrace();
+            }
+        }
+        String replay = System.getProperty("game.replay", "");
+        if (!replay.isEmpty()) {
+            try {
+                recorder = new ReplayRecorder(new File(replay), 256);
+            } catch (IOException err) {
+                err.printStackTrace();
+            }
+        }
+        saveFile = dataFile("game.save", "save.dat");
+        try {
+            bestSolutions = new BestSolutions(BestSolutions.defaultFile());
+        } catch (IOException err) {
+            err.printStackTrace();
+        }
+        File scores = dataFile("game.scores", "scores.dat");
+        if (scores != null) {
+            try {
+                scores.getAbsoluteFile().getParentFile().mkdirs();
+                leaderboard = new Leaderboard(scores);
+            } catch (IOException err) {
+                err.printStackTrace();
+            }
+        }
+        /* Keep the progress and the pending inputs when the window closes */
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            saveGame();
+            stopRecording();
+        }));
+        /* The game ends after the last level of the level files, the pack, or the catalog */
+        lastLevel = gameLogic.getLevels().getLevelCount();
+        gameKey.setOnInput(this::processInput);
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                clickTile(e.getX(), e.getY());
+            }
+        });
 
         button = new JButton("Restart");
         button.addActionListener(this);
@@ -56,17 +154,60 @@ public class GamePanel extends JPanel implements ActionListener {
         button.setLocation(screenWidth / 2, screenHeight / 2);
 
         add(button);
+
+        /* Show how many solutions are occupied next to the button, and if the level became unsolvable */
+        goalLabel = new JLabel();
+        goalLabel.setForeground(Color.WHITE);
+        add(goalLabel);
+
+        startGame();
+    }
+
+    /**
+     * Return the file given by a property, or the file with the given name in the .puzzle-game folder of the
+     * home directory if the property is not set
+     *
+     * @param property Name of the property
+     * @param name File name used if the property is not set
+     * @return File, or null if the property is left empty
+     * */
+    private static File dataFile(String property, String name) {
+        String path = System.getProperty(property);
+        if (path == null) {
+            return new File(new File(System.getProperty("user.home"), ".puzzle-game"), name);
+        }
+        return path.isEmpty() ? null : new File(path);
     }
 
     /**
-     * Initialize the status of the game to running, timer with the delay, and the starting level to 1
+     * Initialize the status of the game to running, the starting level to the one of the save file or 1,
+     * and start the game loop
      * */
     public void startGame() {
         /* Initiating the game */
         running = true;
-        timer = new Timer(delay, this);
-        timer.start();
-        currentLevel = 1;
+        synchronized (gameLogic) {
+            if (!resumeGame()) {
+                currentLevel = 1;
+                if (!gameLogic.startLevel(currentLevel)) {
+                    /* Nothing to play, show the end screen instead of an empty grid */
+                    System.out.println("Level " + currentLevel + " could not be started");
+                    running = false;
+                }
+            }
+            if (running) {
+                recordLevel();
+            }
+        }
+        gameLoop = new GameLoop(ticksPerSecond, framesPerSecond, this::update, this::render);
+        gameLoop.start();
+    }
+
+    /**
+     * Stop the game loop, such as to draw the panel offscreen without the loop repainting it meanwhile
+     * */
+    public void stopGame() {
+        gameLoop.stop();
     }
 
     /**
@@ -79,30 +220,82 @@ public class GamePanel extends JPanel implements ActionListener {
 
     /**
      * While the game, update the UI according to the information from GameLogic for every block
-     * to their respective color
+     * inside the clip area to their respective tile
      * */
     public void draw(Graphics g) {
-        /* Draw the screen over and over whenever an action is performed through repaint() method
-        * and pick a color or shape depending on the block type
+        /* Draw the tiles whenever repaint() is called for them: the background layer already holds
+        * nothing, walls, and solutions so only the player and the pushable objects are blitted on top
         * */
+        long start = System.nanoTime();
+        synchronized (gameLogic) {
+            drawLocked(g);
+        }
+        long nanos = System.nanoTime() - start;
+        frameCounter.frame(nanos);
+        metrics.draw().record(nanos);
+        if (showFps) {
+            drawOverlay(g);
+        }
+    }
+
+    /**
+     * Draw the frames per second and the metrics in the top left corner
+     * */
+    private void drawOverlay(Graphics g) {
+        g.setColor(Color.YELLOW);
+        g.setFont(fpsFont);
+        g.drawString(frameCounter.getFramesPerSecond() + " fps "
+                + String.format("%.2f", frameCounter.getFrameMillis()) + " ms, tick jitter "
+                + String.format("%.2f", gameLoop.getTickJitterMillis()) + " ms", 4, 16);
+        g.drawString(latency("tick ", metrics.tick()), 4, 32);
+        g.drawString(latency("draw ", metrics.draw()), 4, 48);
+        g.drawString(latency("level", metrics.startLevel()), 4, 64);
+        long rate = metrics.getAllocationRate();
+        g.drawString("alloc " + (rate < 0 ? "n/a" : String.format("%.1f MB/s", rate / 1e6))
+                + ", moves " + metrics.getMoves() + ", dropped keys " + gameKey.getQueue().getDropped(), 4, 80);
+        MoveJournal journal = gameLogic.getJournal();
+        BestSolutions.Entry best = bestSolutions != null ? bestSolutions.get(currentLevel, Solver.Cost.MOVES) : null;
+        g.drawString("level " + currentLevel + ": " + journal.getPosition() + " moves " + journal.getPushes() + " pushes"
+                + (best != null ? ", best " + best.moves() + " moves " + best.pushes() + " pushes" : ""), 4, 96);
+    }
+
+    /**
+     * Return a line of the overlay with the median, 99th percentile, and maximum of a histogram
+     * */
+    private static String latency(String name, LatencyHistogram histogram) {
+        return String.format("%s p50 %.2f p99 %.2f max %.2f ms", name, histogram.getPercentile(0.5) / 1e6,
+                histogram.getPercentile(0.99) / 1e6, histogram.getMax() / 1e6);
+    }
+
+    /**
+     * Draw the grid or the win screen while holding the GameLogic lock
+     * */
+    private void drawLocked(Graphics g) {
         if (running) {
-            for (int i = 0; i < maxScreenRow; i++) {
-                for (int j = 0; j < maxScreenCol; j++) {
+            if (atlas == null) {
+                atlas = new TileAtlas(tileSize, getGraphicsConfiguration());
+            }
+            if (backgroundStale) {
+                background = atlas.renderBackground(gameLogic, cameraX, cameraY, maxScreenRow, maxScreenCol);
+                backgroundStale = false;
+            }
+            g.drawImage(background, 0, 0, null);
+
+            /* Cull to the tiles both inside the clip area and inside the grid, the whole panel without a clip */
+            clip.setBounds(0, 0, screenWidth, screenHeight);
+            g.getClipBounds(clip);
+            int firstRow = Math.max(0, cameraX + clip.x / tileSize);
+            int lastRow = Math.min(gameLogic.getRow() - 1,
+                    cameraX + Math.min(maxScreenRow - 1, (clip.x + clip.width - 1) / tileSize));
+            int firstCol = Math.max(0, cameraY + clip.y / tileSize);
+            int lastCol = Math.min(gameLogic.getCol() - 1,
+                    cameraY + Math.min(maxScreenCol - 1, (clip.y + clip.height - 1) / tileSize));
+            for (int i = firstRow; i <= lastRow; i++) {
+                for (int j = firstCol; j <= lastCol; j++) {
                     int type = gameLogic.getBlockType(i, j);
-                    if (gameLogic.isSolution(i, j)) {
-                        if (type == 3) {
-                            g.setColor(colorPicker(type + 1));
-                            g.fillRect(i * tileSize, j * tileSize, tileSize, tileSize);
-                        } else if (type == 1) {
-                            g.setColor(colorPicker(type));
-                            g.fillRect(i * tileSize, j * tileSize, tileSize, tileSize);
-                        } else {
-                            g.setColor(colorPicker(3));
-                            g.fillOval(i * tileSize, j * tileSize, tileSize, tileSize);
-                        }
-                    } else {
-                        g.setColor(colorPicker(type));
-                        g.fillRect(i * tileSize, j * tileSize, tileSize, tileSize);
+                    if (type == 1 || type == 3) {
+                        g.drawImage(atlas.getTile(type, gameLogic.isSolution(i, j)),
+                                (i - cameraX) * tileSize, (j - cameraY) * tileSize, null);
                     }
                 }
             }
@@ -114,17 +307,10 @@ public class GamePanel extends JPanel implements ActionListener {
     /**
      * Pick a color depending on the block type and return that respective color object
      *
-     * @param type a number represented by block type, see Block.java for information
+     * @param type a number represented by block type, see Board for the types, or 4 for a solution
      * */
     public Color colorPicker(int type) {
-        return switch (type) {
-            case 0 -> Color.BLACK;
-            case 1 -> Color.BLUE;
-            case 2 -> Color.WHITE;
-            case 3 -> Color.RED;
-            case 4 -> Color.GREEN;
-            default -> null;
-        };
+        return TileAtlas.colorPicker(type);
     }
 
     /**
@@ -132,89 +318,157 @@ public class GamePanel extends JPanel implements ActionListener {
      * and check for the instance of a WALL or a PUSHABLE OBJECT
      * and check for if the PLAYER will be moving out of bound
      * and check if there is more than one instance of the BLOCK
+     * The rules themselves live in GameLogic.move so they can also run headless.
+     *
+     * @param key Input character, see GameKey for the characters
+     * @return GameLogic.BLOCKED, GameLogic.WALKED, or GameLogic.PUSHED
      * */
-    public void checkCollision() {
-        int type;
-        int playerX = gameLogic.getPlayer().getX();
-        int playerY = gameLogic.getPlayer().getY();
-        switch (gameKey.getKey()) {
-            case 'L' -> {
-                if (playerX - 1 > -1) {
-                    type = gameLogic.getBlockType(playerX - 1, playerY);
-                    switch (type) {
-                        case 0 -> gameLogic.updatePlayer(playerX, playerY, playerX - 1, playerY);
-                        case 3 -> {
-                            if (playerX - 2 > -1 && gameLogic.getBlockType(playerX - 2, playerY) == 0) {
-                                gameLogic.pushBlock(playerX - 1, playerY, playerX - 2, playerY);
-                                gameLogic.updatePlayer(playerX, playerY, playerX - 1, playerY);
-                            }
-                        }
-                    }
+    public int checkCollision(char key) {
+        int result = gameLogic.move(key);
+        metrics.move(result);
+        return result;
+    }
+
+    /**
+     * Check if all SOLUTION are occupied by a PUSHABLE OBJECT
+     * and then proceed to the next LEVEL
+     * if at the last level print "You win!"
+     * GameLogic counts the occupied solutions on every push so this is a single comparison.
+     * */
+    public void checkSolution() {
+        if (gameLogic.isSolved()) {
+            recordScore();
+            if (currentLevel >= lastLevel) {
+                running = false;
+                /* The game is over, the next one starts from the first level */
+                if (saveFile != null) {
+                    saveFile.delete();
+                    saveFile = null;
                 }
+            } else if (gameLogic.startLevel(currentLevel + 1)) {
+                currentLevel++;
+                recordLevel();
+                saveGame();
+            } else {
+                /* A missing or damaged level ends the game, the save still holds the last level played */
+                System.out.println("Level " + (currentLevel + 1) + " could not be started");
+                running = false;
             }
-            case 'R' -> {
-                if (playerX + 1 < maxScreenCol) {
-                    type = gameLogic.getBlockType(playerX + 1, playerY);
-                    switch (type) {
-                        case 0 -> gameLogic.updatePlayer(playerX, playerY, playerX + 1, playerY);
-                        case 3 -> {
-                            if (playerX + 2 < maxScreenCol && gameLogic.getBlockType(playerX + 2, playerY) == 0) {
-                                gameLogic.pushBlock(playerX + 1, playerY, playerX + 2, playerY);
-                                gameLogic.updatePlayer(playerX, playerY, playerX + 1, playerY);
-                            }
-                        }
-                    }
-                }
+            /* Moves queued for the finished level must not leak into the next one */
+            gameKey.getQueue().clear();
+        }
+    }
+
+    /**
+     * Add the moves and pushes of the completed level to the leaderboard and print them next to the best
+     * known solutions
+     * */
+    private void recordScore() {
+        MoveJournal journal = gameLogic.getJournal();
+        int moves = journal.getPosition();
+        int pushes = journal.getPushes();
+        StringBuilder text = new StringBuilder("Level " + currentLevel + ": " + moves + " moves, " + pushes + " pushes");
+        BestSolutions.Entry fewestPushes = bestSolutions != null ? bestSolutions.get(currentLevel, Solver.Cost.PUSHES) : null;
+        BestSolutions.Entry fewestMoves = bestSolutions != null ? bestSolutions.get(currentLevel, Solver.Cost.MOVES) : null;
+        if (fewestPushes != null && fewestMoves != null) {
+            text.append(" (best known ").append(fewestMoves.moves()).append(" moves, ")
+                    .append(fewestPushes.pushes()).append(" pushes)");
+        }
+        if (leaderboard != null) {
+            try {
+                leaderboard.add(currentLevel, moves, pushes, playerName);
+                Leaderboard.Entry first = leaderboard.top(currentLevel, 1, Solver.Cost.MOVES).get(0);
+                text.append(", leaderboard ").append(first.moves()).append(" moves by ").append(first.name());
+            } catch (IOException err) {
+                /* The next completed level tries again, a record written in part is overwritten */
+                System.out.println("Could not save the score of level " + currentLevel + ": " + err.getMessage());
+                err.printStackTrace();
             }
-            case 'U' -> {
-                if (playerY - 1 > -1) {
-                    type = gameLogic.getBlockType(playerX, playerY - 1);
-                    switch (type) {
-                        case 0 -> gameLogic.updatePlayer(playerX, playerY, playerX, playerY - 1);
-                        case 3 -> {
-                            if (playerY - 2 > -1 && gameLogic.getBlockType(playerX, playerY - 2) == 0) {
-                                gameLogic.pushBlock(playerX, playerY - 1, playerX, playerY - 2);
-                                gameLogic.updatePlayer(playerX, playerY, playerX, playerY - 1);
-                            }
-                        }
-                    }
-                }
+        }
+        System.out.println(text);
+    }
+
+    /**
+     * Restore the level, the board, and the undo history of the save file
+     *
+     * @return True if the game was restored, false if there is no usable save file
+     * */
+    private boolean resumeGame() {
+        if (saveFile == null) {
+            return false;
+        }
+        try {
+            int level = SaveState.load(saveFile, gameLogic);
+            if (level < 1 || level > lastLevel) {
+                return false;
             }
-            case 'D' -> {
-                if (playerY + 1 < maxScreenRow) {
-                    type = gameLogic.getBlockType(playerX, playerY + 1);
-                    switch (type) {
-                        case 0 -> gameLogic.updatePlayer(playerX, playerY, playerX, playerY + 1);
-                        case 3 -> {
-                            if (playerY + 2 < maxScreenRow && gameLogic.getBlockType(playerX, playerY + 2) == 0) {
-                                gameLogic.pushBlock(playerX, playerY + 1, playerX, playerY + 2);
-                                gameLogic.updatePlayer(playerX, playerY, playerX, playerY + 1);
-                            }
-                        }
-                    }
+            currentLevel = level;
+            /* Loading the snapshot skips startLevel, so ask for the next level here */
+            gameLogic.getLevelCache().prefetch(currentLevel + 1);
+            return true;
+        } catch (IOException err) {
+            err.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Write the current level, board, and undo history to the save file
+     * */
+    private void saveGame() {
+        synchronized (gameLogic) {
+            if (saveFile != null && running) {
+                try {
+                    SaveState.save(saveFile, currentLevel, gameLogic);
+                } catch (IOException err) {
+                    err.printStackTrace();
                 }
             }
         }
     }
 
     /**
-     * Check if all SOLUTION are occupied by a PUSHABLE OBJECT
-     * and then proceed to the next LEVEL
-     * if at the last level print "You win!"
+     * Append the start of the current level to the replay file
      * */
-    public void checkSolution() {
-        ArrayList<int[]> solutionPair = gameLogic.getSolution();
+    private void recordLevel() {
+        if (recorder != null) {
+            try {
+                recorder.startLevel(currentLevel, gameLogic);
+            } catch (IOException err) {
+                err.printStackTrace();
+                recorder = null;
+            }
+        }
+    }
 
-        for(int i = 0; i < solutionPair.size(); i++) {
-            if (gameLogic.getBlockType(solutionPair.get(i)[0], solutionPair.get(i)[1]) != 3) {
-                break;
-            } else if (i == solutionPair.size() - 1) {
-                if (currentLevel == lastLevel) {
-                    running = false;
-                } else {
-                    gameLogic.startLevel(currentLevel + 1);
-                    currentLevel++;
+    /**
+     * Append an applied input to the replay file
+     *
+     * @param key Input character, see GameKey for the characters
+     * */
+    private void recordInput(char key) {
+        if (recorder != null) {
+            try {
+                recorder.record(key, gameLogic);
+            } catch (IOException err) {
+                err.printStackTrace();
+                recorder = null;
+            }
+        }
+    }
+
+    /**
+     * Write the pending inputs and close the replay file when the game closes
+     * */
+    private void stopRecording() {
+        synchronized (gameLogic) {
+            if (recorder != null) {
+                try {
+                    recorder.close();
+                } catch (IOException err) {
+                    err.printStackTrace();
                 }
+                recorder = null;
             }
         }
     }
@@ -224,30 +478,187 @@ public class GamePanel extends JPanel implements ActionListener {
      * */
     public void win(Graphics g) {
         g.setColor(Color.YELLOW);
-        g.setFont(new Font("Ink Free", Font.BOLD, 75));
+        g.setFont(winFont);
         FontMetrics metrics = getFontMetrics(g.getFont());
         g.drawString("You win!", (screenWidth - metrics.stringWidth("You win!")) / 2, screenHeight / 2);
     }
 
     /**
-     * Whenever any action is performed, this method will repaint the panel, check for collisions and solution is met
+     * Repaint only the tiles reported as changed by GameLogic, or the whole panel after a level was loaded
      * */
-    @Override
-    public void actionPerformed(ActionEvent e) {
-        /* Check for if button is pressed */
-        if (e.getSource() == button) {
-            gameLogic.startLevel(currentLevel);
+    public void repaintChanges() {
+        boolean full = gameLogic.isFullRefresh() | updateCamera();
+        if (full) {
+            backgroundStale = true;
+        }
+        if (!running || showFps || full) {
+            repaint();
+        } else {
+            for (int i = 0; i < gameLogic.getDirtyCount(); i++) {
+                int x = gameLogic.getDirtyX(i) - cameraX;
+                int y = gameLogic.getDirtyY(i) - cameraY;
+                if (x > -1 && x < maxScreenRow && y > -1 && y < maxScreenCol) {
+                    repaint(x * tileSize, y * tileSize, tileSize, tileSize);
+                }
+            }
         }
+        gameLogic.clearDirty();
+    }
 
-        if (running) {
-            checkCollision();
-            checkSolution();
+    /**
+     * Scroll the viewport to keep the PLAYER at least cameraMargin tiles from its edges, without
+     * going past the edges of the grid
+     *
+     * @return If the viewport moved true, otherwise false
+     * */
+    private boolean updateCamera() {
+        int x = cameraX;
+        int y = cameraY;
+        if (gameLogic.getPlayer() != null) {
+            x = follow(cameraX, gameLogic.getPlayer().getX(), maxScreenRow, gameLogic.getRow());
+            y = follow(cameraY, gameLogic.getPlayer().getY(), maxScreenCol, gameLogic.getCol());
+        }
+        boolean moved = x != cameraX || y != cameraY;
+        cameraX = x;
+        cameraY = y;
+        return moved;
+    }
+
+    /**
+     * Move the viewport along one axis so the position stays inside its margins
+     * */
+    private static int follow(int camera, int position, int view, int size) {
+        int margin = Math.min(cameraMargin, (view - 1) / 2);
+        if (position < camera + margin) {
+            camera = position - margin;
+        } else if (position >= camera + view - margin) {
+            camera = position - view + margin + 1;
+        }
+        return Math.max(0, Math.min(camera, size - view));
+    }
+
+    /**
+     * Queue the moves walking to the clicked tile, or pushing the clicked PUSHABLE OBJECT toward the
+     * opposite side of the point clicked in its tile, and apply them right away
+     *
+     * @param x Pixel X of the click
+     * @param y Pixel Y of the click
+     * */
+    public void clickTile(int x, int y) {
+        synchronized (gameLogic) {
+            int tileX = cameraX + x / tileSize;
+            int tileY = cameraY + y / tileSize;
+            if (!running || !gameLogic.isInside(tileX, tileY)) {
+                return;
+            }
+            int length;
+            if (gameLogic.getBlockType(tileX, tileY) == 3) {
+                int offsetX = x % tileSize - tileSize / 2;
+                int offsetY = y % tileSize - tileSize / 2;
+                char key = Math.abs(offsetX) > Math.abs(offsetY) ? (offsetX < 0 ? 'R' : 'L') : (offsetY < 0 ? 'D' : 'U');
+                length = gameLogic.findPush(tileX, tileY, key);
+            } else {
+                length = gameLogic.findPath(tileX, tileY);
+            }
+            char[] path = gameLogic.getPath();
+            for (int i = 0; i < length; i++) {
+                gameKey.getQueue().offer(path[i]);
+            }
+        }
+        processInput();
+    }
+
+    /**
+     * Apply every queued input in order, checking for collisions and solution after each one
+     * */
+    public void applyInput() {
+        synchronized (gameLogic) {
+            char key;
+            while (running && (key = gameKey.getQueue().poll()) != 0) {
+                int result = switch (key) {
+                    case 'Z' -> gameLogic.undo();
+                    case 'Y' -> gameLogic.redo();
+                    case 'F' -> {
+                        showFps = !showFps;
+                        repaint();
+                        yield GameLogic.BLOCKED;
+                    }
+                    default -> checkCollision(key);
+                };
+                if (result != GameLogic.BLOCKED) {
+                    recordInput(key);
+                }
+                /* Only a push can complete the level */
+                if (result == GameLogic.PUSHED) {
+                    checkSolution();
+                }
+            }
+        }
+    }
+
+    /**
+     * Apply every queued input right away and repaint what changed
+     * */
+    public void processInput() {
+        applyInput();
+        render(0);
+    }
+
+    /**
+     * Logic tick of the game loop
+     * */
+    public void update() {
+        long start = System.nanoTime();
+        applyInput();
+        metrics.tick().recordSince(start);
+    }
+
+    /**
+     * Frame of the game loop: repaint what changed since the last frame and stop the loop if the user has won.
+     * Moves are discrete so the interpolation between ticks is not used.
+     *
+     * @param alpha Fraction of the next tick already elapsed
+     * */
+    public void render(double alpha) {
+        int goals;
+        int occupied;
+        boolean deadlocked;
+        synchronized (gameLogic) {
+            repaintChanges();
+            goals = gameLogic.getGoalCount();
+            occupied = gameLogic.getBoxesOnGoals();
+            deadlocked = gameLogic.isDeadlocked();
+        }
+        int shown = (deadlocked ? 1 << 30 : 0) | goals << 15 | occupied;
+        if (shown != shownGoals) {
+            shownGoals = shown;
+            String text = occupied + " / " + goals + (deadlocked ? "  Unsolvable: undo (Z) or Restart" : "");
+            SwingUtilities.invokeLater(() -> goalLabel.setText(text));
         }
-        repaint();
 
         /* Stop the game if the user has won */
         if (!running) {
-            timer.stop();
+            gameLoop.stop();
+        }
+    }
+
+    /**
+     * Restart the current level when the "Restart" button is pressed
+     * */
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        /* Check for if button is pressed */
+        if (e.getSource() == button) {
+            long start = System.nanoTime();
+            synchronized (gameLogic) {
+                if (!gameLogic.startLevel(currentLevel)) {
+                    System.out.println("Level " + currentLevel + " could not be started again");
+                }
+                recordLevel();
+                gameKey.getQueue().clear();
+            }
+            render(0);
+            metrics.action().recordSince(start);
         }
     }
 }
@@ -0,0 +1,107 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue of input characters (see GameKey for the characters).
+ * <p>
+ * Every slot of the ring carries a sequence number telling whether it is free for the producers or
+ * filled for the consumer, so keyPressed, scripted input from other threads, and the game loop draining
+ * the queue never block each other. When the queue is full the new input is dropped and counted.
+ * */
+public class InputQueue {
+    private final int mask;
+    private final char[] keys;
+    private final AtomicLongArray sequence;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Initialize the queue with room for at least the given number of inputs
+     *
+     * @param capacity Minimum capacity, rounded up to a power of two
+     */
+    public InputQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask = size - 1;
+        keys = new char[size];
+        sequence = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequence.set(i, i);
+        }
+    }
+
+    /**
+     * Add an input at the end of the queue
+     *
+     * @param key Input character
+     * @return If the input was queued true, false if the queue was full
+     */
+    public boolean offer(char key) {
+        while (true) {
+            long t = tail.get();
+            int slot = (int) (t & mask);
+            long diff = sequence.get(slot) - t;
+            if (diff == 0) {
+                if (tail.compareAndSet(t, t + 1)) {
+                    keys[slot] = key;
+                    /* Publishing the sequence makes the key visible to the consumer */
+                    sequence.set(slot, t + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Remove the input at the front of the queue
+     *
+     * @return Input character, or 0 if the queue is empty
+     */
+    public char poll() {
+        while (true) {
+            long h = head.get();
+            int slot = (int) (h & mask);
+            long diff = sequence.get(slot) - (h + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(h, h + 1)) {
+                    char key = keys[slot];
+                    sequence.set(slot, h + mask + 1);
+                    return key;
+                }
+            } else if (diff < 0) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Remove every queued input
+     */
+    public void clear() {
+        while (poll() != 0) {
+            /* Drain until empty */
+        }
+    }
+
+    /**
+     * Check if there is no queued input
+     *
+     * @return If the queue is empty true, otherwise false
+     */
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    /**
+     * Return the number of inputs dropped because the queue was full
+     *
+     * @return Dropped inputs
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,215 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations in nanoseconds.
+ * <p>
+ * Durations are counted in logarithmic buckets, four per power of two, so recording is a few atomic
+ * increments with no allocation and the percentiles are within 25% of the real value from nanoseconds
+ * up to hours.
+ * */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 2;
+    private static final int BUCKETS = 64 << SUB_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a duration
+     *
+     * @param nanos Duration in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(bucket(nanos));
+        count.incrementAndGet();
+        total.addAndGet(nanos);
+        long current;
+        while (nanos > (current = max.get()) && !max.compareAndSet(current, nanos)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Record the time elapsed since the given start
+     *
+     * @param start Start given by System.nanoTime()
+     */
+    public void recordSince(long start) {
+        record(System.nanoTime() - start);
+    }
+
+    /**
+     * Return the bucket of a duration: the position of its highest bit and the two bits below it
+     */
+    private static int bucket(long nanos) {
+        if (nanos < (1 << SUB_BITS)) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int mantissa = (int) (nanos >>> (exponent - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+        return (exponent - SUB_BITS + 1) << SUB_BITS | mantissa;
+    }
+
+    /**
+     * Return the largest duration counted in a bucket
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < (1 << SUB_BITS)) {
+            return bucket;
+        }
+        int exponent = (bucket >>> SUB_BITS) + SUB_BITS - 1;
+        long mantissa = (bucket & ((1 << SUB_BITS) - 1)) | (1 << SUB_BITS);
+        return ((mantissa + 1) << (exponent - SUB_BITS)) - 1;
+    }
+
+    /**
+     * Return the number of recorded durations
+     *
+     * @return Count of durations
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Return the average recorded duration
+     *
+     * @return Mean in nanoseconds, or 0 if nothing was recorded
+     */
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) total.get() / n;
+    }
+
+    /**
+     * Return the longest recorded duration
+     *
+     * @return Maximum in nanoseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Return the duration that the given fraction of the recorded durations do not exceed
+     *
+     * @param fraction Fraction between 0 and 1, 0.99 for the 99th percentile
+     * @return Upper bound of the percentile in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getPercentile(double fraction) {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            n += counts.get(i);
+        }
+        long rank = (long) Math.ceil(fraction * n);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank && seen > 0) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Return a copy of the statistics in microseconds, as shown over JMX
+     *
+     * @return Snapshot of the histogram
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(getCount(), getMean() / 1000, getPercentile(0.5) / 1000.0,
+                getPercentile(0.99) / 1000.0, getMax() / 1000.0);
+    }
+
+    /**
+     * Forget every recorded duration
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Statistics of a histogram at one point in time, in microseconds
+     */
+    public static class Snapshot {
+        private final long count;
+        private final double mean;
+        private final double median;
+        private final double p99;
+        private final double max;
+
+        /**
+         * Initialize the snapshot
+         *
+         * @param count Number of recorded durations
+         * @param mean Average duration
+         * @param median 50th percentile
+         * @param p99 99th percentile
+         * @param max Longest duration
+         */
+        public Snapshot(long count, double mean, double median, double p99, double max) {
+            this.count = count;
+            this.mean = mean;
+            this.median = median;
+            this.p99 = p99;
+            this.max = max;
+        }
+
+        /**
+         * Return the number of recorded durations
+         *
+         * @return Count of durations
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Return the average duration
+         *
+         * @return Mean in microseconds
+         */
+        public double getMean() {
+            return mean;
+        }
+
+        /**
+         * Return the 50th percentile
+         *
+         * @return Median in microseconds
+         */
+        public double getMedian() {
+            return median;
+        }
+
+        /**
+         * Return the 99th percentile
+         *
+         * @return 99th percentile in microseconds
+         */
+        public double getP99() {
+            return p99;
+        }
+
+        /**
+         * Return the longest duration
+         *
+         * @return Maximum in microseconds
+         */
+        public double getMax() {
+            return max;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Scores of every completed level kept in a small file, with the best scores of a level ready to be listed.
+ * <p>
+ * The file is a header (magic "LBRD" and version) followed by fixed-size records of RECORD bytes, big endian:
+ * the level number, the moves, and the pushes as ints, the time as milliseconds since the epoch, and the
+ * player name in UTF-8 padded with zeros. Scores are only appended, and a record cut short by a crash at the
+ * end of the file is dropped when it is opened.
+ * <p>
+ * Opening reads the records once and indexes them by level, sorted by each Solver.Cost, so top() copies the
+ * first entries of a list instead of scanning the file.
+ * <p>
+ * Usage: java Leaderboard file level [count] [-moves] to list the best scores of a level
+ * */
+public class Leaderboard implements Closeable {
+    private static final int MAGIC = 0x4C425244; // "LBRD"
+    private static final int VERSION = 1;
+    private static final int HEADER = 8;
+    private static final int NAME = 12;
+    private static final int RECORD = 20 + NAME;
+
+    private final FileChannel channel;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD);
+    private final HashMap<Integer, ArrayList<Entry>> byPushes = new HashMap<>();
+    private final HashMap<Integer, ArrayList<Entry>> byMoves = new HashMap<>();
+    private int count;
+
+    /**
+     * A score of a completed level
+     *
+     * @param level Level number
+     * @param moves Number of moves
+     * @param pushes Number of pushes
+     * @param time Time the level was completed, in milliseconds since the epoch
+     * @param name Player name
+     */
+    public record Entry(int level, int moves, int pushes, long time, String name) {
+    }
+
+    /**
+     * Open or create a leaderboard file and index its scores
+     *
+     * @param file Leaderboard file
+     * @throws IOException If the file cannot be read or written or is not a leaderboard file
+     */
+    public Leaderboard(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER).putInt(MAGIC).putInt(VERSION).flip();
+                channel.write(header, 0);
+                return;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            channel.read(header, 0);
+            if (header.flip().remaining() < HEADER || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a leaderboard file: " + file);
+            }
+            long records = (channel.size() - HEADER) / RECORD;
+            channel.truncate(HEADER + records * RECORD);
+
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD * 2048);
+            long position = HEADER;
+            while (position < channel.size()) {
+                buffer.clear();
+                int read;
+                do {
+                    read = channel.read(buffer, position + buffer.position());
+                } while (read > 0 && buffer.hasRemaining());
+                buffer.flip();
+                position += buffer.remaining();
+                while (buffer.remaining() >= RECORD) {
+                    index(decode(buffer));
+                }
+            }
+        } catch (IOException err) {
+            channel.close();
+            throw err;
+        }
+    }
+
+    /**
+     * Read the record at the position of the buffer
+     */
+    private static Entry decode(ByteBuffer buffer) {
+        int level = buffer.getInt();
+        int moves = buffer.getInt();
+        int pushes = buffer.getInt();
+        long time = buffer.getLong();
+        byte[] name = new byte[NAME];
+        buffer.get(name);
+        int length = 0;
+        while (length < NAME && name[length] != 0) {
+            length++;
+        }
+        return new Entry(level, moves, pushes, time, new String(name, 0, length, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Insert an entry in the lists of its level after the entries with the same score
+     */
+    private void index(Entry entry) {
+        insert(byPushes.computeIfAbsent(entry.level(), level -> new ArrayList<>()), entry, Solver.Cost.PUSHES);
+        insert(byMoves.computeIfAbsent(entry.level(), level -> new ArrayList<>()), entry, Solver.Cost.MOVES);
+        count++;
+    }
+
+    private static void insert(ArrayList<Entry> list, Entry entry, Solver.Cost cost) {
+        int low = 0;
+        int high = list.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            Entry other = list.get(mid);
+            if (cost.compare(other.moves(), other.pushes(), entry.moves(), entry.pushes()) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        list.add(low, entry);
+    }
+
+    /**
+     * Append a score to the file and the index
+     *
+     * @param level Level number
+     * @param moves Number of moves
+     * @param pushes Number of pushes
+     * @param name Player name, cut to NAME bytes
+     * @return Entry added
+     * @throws IOException If the record cannot be written
+     */
+    public synchronized Entry add(int level, int moves, int pushes, String name) throws IOException {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, NAME);
+        /* Do not cut a multi-byte character in two */
+        while (length < bytes.length && length > 0 && (bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        Entry entry = new Entry(level, moves, pushes, System.currentTimeMillis(), new String(bytes, 0, length, StandardCharsets.UTF_8));
+        record.clear();
+        record.putInt(level).putInt(moves).putInt(pushes).putLong(entry.time()).put(bytes, 0, length);
+        while (record.hasRemaining()) {
+            record.put((byte) 0);
+        }
+        record.flip();
+        long position = HEADER + (long) count * RECORD;
+        while (record.hasRemaining()) {
+            channel.write(record, position + record.position());
+        }
+        channel.force(false);
+        index(entry);
+        return entry;
+    }
+
+    /**
+     * Return the best scores of a level
+     *
+     * @param level Level number
+     * @param n Maximum number of scores
+     * @param cost PUSHES to rank by pushes then moves, MOVES to rank by moves then pushes
+     * @return Up to n scores from the best, the oldest first between equal scores
+     */
+    public synchronized List<Entry> top(int level, int n, Solver.Cost cost) {
+        ArrayList<Entry> list = (cost == Solver.Cost.PUSHES ? byPushes : byMoves).get(level);
+        if (list == null) {
+            return List.of();
+        }
+        return List.copyOf(list.subList(0, Math.min(n, list.size())));
+    }
+
+    /**
+     * Return the number of scores of every level
+     *
+     * @return Number of scores
+     */
+    public synchronized int getEntryCount() {
+        return count;
+    }
+
+    /**
+     * Close the file
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Print the best scores of a level
+     *
+     * @param args Leaderboard file, level number, optional number of scores, and -moves to rank by moves
+     */
+    public static void main(String[] args) throws IOException {
+        Solver.Cost cost = Solver.Cost.PUSHES;
+        List<String> positional = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("-moves")) {
+                cost = Solver.Cost.MOVES;
+            } else {
+                positional.add(arg);
+            }
+        }
+        if (positional.size() < 2) {
+            System.out.println("Usage: java Leaderboard file level [count] [-moves]");
+            return;
+        }
+        int level = Integer.parseInt(positional.get(1));
+        int n = positional.size() > 2 ? Integer.parseInt(positional.get(2)) : 10;
+        long start = System.nanoTime();
+        try (Leaderboard leaderboard = new Leaderboard(new File(positional.get(0)))) {
+            System.out.printf("%d scores indexed in %.1f ms%n", leaderboard.getEntryCount(), (System.nanoTime() - start) / 1e6);
+            BestSolutions.Entry best = new BestSolutions(BestSolutions.defaultFile()).get(level, cost);
+            if (best != null) {
+                System.out.printf("Best known: %d moves, %d pushes%n", best.moves(), best.pushes());
+            }
+            List<Entry> top = leaderboard.top(level, n, cost);
+            for (int i = 0; i < top.size(); i++) {
+                Entry entry = top.get(i);
+                System.out.printf("%3d. %-12s %5d moves %5d pushes  %tF%n", i + 1, entry.name(), entry.moves(),
+                        entry.pushes(), entry.time());
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntFunction;
+
+/**
+ * Least recently used cache of parsed levels with background prefetching.
+ * <p>
+ * Restarting a level or going back to a recent one is served from memory, and prefetch() loads a level
+ * on a background thread ahead of time so moving to the next level does not wait on the disk. A level
+ * asked for while its prefetch is still running waits for that load instead of reading the files twice.
+ * A level found missing by a prefetch is remembered so prefetching past the last level is only tried once.
+ * */
+public class LevelCache {
+    private final IntFunction<LevelData> loader;
+    private final LinkedHashMap<Integer, LevelData> cache;
+    private final HashMap<Integer, CompletableFuture<LevelData>> loading = new HashMap<>();
+    private final HashSet<Integer> missing = new HashSet<>();
+    private final ExecutorService executor;
+    private long hits;
+    private long misses;
+
+    /**
+     * Initialize the cache
+     *
+     * @param loader Function loading a level by its number, returning null if it does not exist
+     * @param capacity Maximum number of levels kept in memory
+     */
+    public LevelCache(IntFunction<LevelData> loader, int capacity) {
+        this.loader = loader;
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, LevelData> eldest) {
+                return size() > capacity;
+            }
+        };
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "level-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Return the level with the given number, loading it on the calling thread if it is neither cached
+     * nor being loaded. Threads asking for a level another thread is loading wait for that load.
+     *
+     * @param num Level number
+     * @return Level, or null if it does not exist
+     */
+    public LevelData get(int num) {
+        CompletableFuture<LevelData> pending;
+        CompletableFuture<LevelData> owned = null;
+        synchronized (this) {
+            LevelData data = cache.get(num);
+            if (data != null) {
+                hits++;
+                return data;
+            }
+            misses++;
+            pending = loading.get(num);
+            if (pending == null) {
+                owned = new CompletableFuture<>();
+                loading.put(num, owned);
+            }
+        }
+        if (pending != null) {
+            return pending.join();
+        }
+        LevelData data = null;
+        try {
+            data = loader.apply(num);
+        } finally {
+            synchronized (this) {
+                loading.remove(num);
+                if (data != null) {
+                    cache.put(num, data);
+                }
+            }
+            owned.complete(data);
+        }
+        return data;
+    }
+
+    /**
+     * Load the level with the given number in the background if it is not cached yet
+     *
+     * @param num Level number
+     */
+    public synchronized void prefetch(int num) {
+        if (cache.containsKey(num) || loading.containsKey(num) || missing.contains(num)) {
+            return;
+        }
+        CompletableFuture<LevelData> future = CompletableFuture.supplyAsync(() -> loader.apply(num), executor);
+        loading.put(num, future);
+        future.whenComplete((data, err) -> {
+            synchronized (this) {
+                loading.remove(num);
+                if (data != null) {
+                    cache.put(num, data);
+                } else {
+                    missing.add(num);
+                }
+            }
+        });
+    }
+
+    /**
+     * Forget every cached level, such as after the level source changed
+     */
+    public synchronized void clear() {
+        cache.clear();
+        missing.clear();
+    }
+
+    /**
+     * Return the number of levels served from memory
+     *
+     * @return Cache hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Return the number of levels that were not in memory when asked for
+     *
+     * @return Cache misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
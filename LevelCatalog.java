@@ -0,0 +1,272 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Index of a collection of levels that loads a level only when it is asked for.
+ * <p>
+ * A catalog opens either a directory holding the Levels and Solutions folders, or a single XSB file, the
+ * text format of most published Sokoban collections. Opening lists the directory or reads through the file
+ * once, keeping only the level file numbers or the byte range of every level, so a collection of tens of
+ * thousands of levels opens in one pass with a few bytes of memory per level. Levels are numbered from 1
+ * in the order of the collection, and the numbers of a directory are kept even with gaps between them.
+ * <p>
+ * XSB levels use # for a WALL, @ for the PLAYER, $ for a PUSHABLE OBJECT, . for a SOLUTION, + and * for the
+ * PLAYER and a PUSHABLE OBJECT on a SOLUTION, and space, - or _ for nothing. Any other line, such as a title
+ * or a comment, separates two levels.
+ * <p>
+ * Usage: java LevelCatalog &lt;directory or XSB file&gt; [level] to print the size of the collection and a level
+ * */
+public class LevelCatalog implements Closeable {
+    private static final Pattern levelName = Pattern.compile("level(\\d+)\\.txt");
+
+    private final Levels levels;
+    private final int[] numbers;
+    private final FileChannel channel;
+    private final long[] starts;
+    private final int[] lengths;
+    private final int count;
+
+    private LevelCatalog(Levels levels, int[] numbers) {
+        this.levels = levels;
+        this.numbers = numbers;
+        channel = null;
+        starts = null;
+        lengths = null;
+        count = numbers.length;
+    }
+
+    private LevelCatalog(FileChannel channel, long[] starts, int[] lengths, int count) {
+        levels = null;
+        numbers = null;
+        this.channel = channel;
+        this.starts = starts;
+        this.lengths = lengths;
+        this.count = count;
+    }
+
+    /**
+     * Open a directory holding the Levels and Solutions folders, or an XSB file
+     *
+     * @param path Directory or file
+     * @return Opened catalog
+     * @throws IOException If the collection cannot be read
+     */
+    public static LevelCatalog open(File path) throws IOException {
+        return path.isDirectory() ? openDirectory(path) : openFile(path);
+    }
+
+    /**
+     * List the level files of a directory once, keeping their numbers in order
+     */
+    private static LevelCatalog openDirectory(File dir) throws IOException {
+        int[] numbers = new int[64];
+        int size = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(new File(dir, "Levels").toPath(), "level*.txt")) {
+            for (Path file : files) {
+                Matcher matcher = levelName.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    if (size == numbers.length) {
+                        numbers = Arrays.copyOf(numbers, size * 2);
+                    }
+                    numbers[size++] = Integer.parseInt(matcher.group(1));
+                }
+            }
+        }
+        numbers = Arrays.copyOf(numbers, size);
+        Arrays.sort(numbers);
+        return new LevelCatalog(new Levels(dir), numbers);
+    }
+
+    /**
+     * Read an XSB file once, keeping the byte range of every run of board lines
+     */
+    private static LevelCatalog openFile(File file) throws IOException {
+        long[] starts = new long[64];
+        int[] lengths = new int[64];
+        int count = 0;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 16)) {
+            long position = 0;
+            long lineStart = 0;
+            long levelStart = -1;
+            long levelEnd = 0;
+            boolean board = true;
+            boolean wall = false;
+            int b;
+            do {
+                b = in.read();
+                if (b == '\n' || b == -1) {
+                    /* A board line only holds board characters with at least one WALL */
+                    boolean boardLine = board && wall;
+                    if (boardLine) {
+                        if (levelStart < 0) {
+                            levelStart = lineStart;
+                        }
+                        levelEnd = position;
+                    }
+                    if ((!boardLine || b == -1) && levelStart >= 0) {
+                        if (count == starts.length) {
+                            starts = Arrays.copyOf(starts, count * 2);
+                            lengths = Arrays.copyOf(lengths, count * 2);
+                        }
+                        starts[count] = levelStart;
+                        lengths[count] = (int) (levelEnd - levelStart);
+                        count++;
+                        levelStart = -1;
+                    }
+                    lineStart = position + 1;
+                    board = true;
+                    wall = false;
+                } else if (b != '\r') {
+                    board &= isBoard(b);
+                    wall |= b == '#';
+                }
+                position++;
+            } while (b != -1);
+        }
+        return new LevelCatalog(FileChannel.open(file.toPath(), StandardOpenOption.READ), starts, lengths, count);
+    }
+
+    /**
+     * Check if a character can be part of an XSB board line
+     */
+    private static boolean isBoard(int b) {
+        return switch (b) {
+            case '#', '@', '+', '$', '*', '.', ' ', '-', '_', '\t' -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Return the number of levels in the catalog
+     *
+     * @return Number of levels
+     */
+    public int getLevelCount() {
+        return count;
+    }
+
+    /**
+     * Read the level with the given number, safe to call from several threads
+     *
+     * @param num Level number, from 1
+     * @return Level and solution, or null if there is no such level
+     */
+    public LevelData getLevel(int num) {
+        if (num < 1 || num > count) {
+            return null;
+        }
+        if (levels != null) {
+            return levels.load(numbers[num - 1]);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(lengths[num - 1]);
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, starts[num - 1] + buffer.position()) < 0) {
+                    break;
+                }
+            }
+        } catch (IOException err) {
+            err.printStackTrace();
+            return null;
+        }
+        return parse(buffer.array(), buffer.position());
+    }
+
+    /**
+     * Convert XSB board lines to a level indexed as [X][Y], X being the position in the line and Y the line number
+     */
+    private static LevelData parse(byte[] bytes, int length) {
+        int width = 0;
+        int height = 0;
+        int x = 0;
+        for (int i = 0; i <= length; i++) {
+            int b = i < length ? bytes[i] : '\n';
+            if (b == '\n') {
+                if (x > 0) {
+                    height++;
+                }
+                x = 0;
+            } else if (b != '\r') {
+                x++;
+                width = Math.max(width, x);
+            }
+        }
+        int[][] level = new int[width][height];
+        int[][] solution = new int[width][height];
+        int y = 0;
+        x = 0;
+        for (int i = 0; i <= length && y < height; i++) {
+            int b = i < length ? bytes[i] : '\n';
+            if (b == '\n') {
+                if (x > 0) {
+                    y++;
+                }
+                x = 0;
+                continue;
+            }
+            if (b == '\r') {
+                continue;
+            }
+            level[x][y] = switch (b) {
+                case '#' -> 2;
+                case '@', '+' -> 1;
+                case '$', '*' -> 3;
+                default -> 0;
+            };
+            solution[x][y] = b == '.' || b == '+' || b == '*' ? 1 : 0;
+            x++;
+        }
+        return new LevelData(level, solution);
+    }
+
+    /**
+     * Close the XSB file
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Print the number of levels of a collection, the time taken to open it, and one of its levels
+     *
+     * @param args Directory or XSB file, then an optional level number
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java LevelCatalog <directory or XSB file> [level]");
+            return;
+        }
+        long start = System.nanoTime();
+        try (LevelCatalog catalog = open(new File(args[0]))) {
+            System.out.printf("%d levels indexed in %.1f ms%n", catalog.getLevelCount(), (System.nanoTime() - start) / 1e6);
+            if (args.length > 1) {
+                LevelData data = catalog.getLevel(Integer.parseInt(args[1]));
+                if (data == null) {
+                    System.out.println("No level " + args[1]);
+                    return;
+                }
+                int[][] level = data.getLevel();
+                int[][] solution = data.getSolution();
+                for (int y = 0; y < (level.length > 0 ? level[0].length : 0); y++) {
+                    StringBuilder line = new StringBuilder();
+                    for (int x = 0; x < level.length; x++) {
+                        line.append(solution[x][y] == 1 ? "+.*".charAt(level[x][y] == 1 ? 0 : level[x][y] == 3 ? 2 : 1)
+                                : " @#$".charAt(level[x][y]));
+                    }
+                    System.out.println(line);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * Information class that contains one parsed level: the block types and the solution squares,
+ * both indexed as [X][Y] like the grid
+ */
+public class LevelData {
+    private final int[][] level;
+    private final int[][] solution;
+
+    /**
+     * Initialize the level with its matrices
+     *
+     * @param level Block types, see Board for the types
+     * @param solution 1 for a solution square, otherwise 0
+     */
+    public LevelData(int[][] level, int[][] solution) {
+        this.level = level;
+        this.solution = solution;
+    }
+
+    /**
+     * Return the level matrix
+     *
+     * @return 2D integer array
+     */
+    public int[][] getLevel() {
+        return level;
+    }
+
+    /**
+     * Return the solution matrix
+     *
+     * @return 2D integer array
+     */
+    public int[][] getSolution() {
+        return solution;
+    }
+}
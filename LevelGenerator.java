@@ -0,0 +1,288 @@
+import java.io.*;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Command line tool that generates new levels in the format of the Levels and Solutions folders.
+ * <p>
+ * Every candidate starts as a random room of WALLS with the PUSHABLE OBJECTS on their SOLUTIONS, then the
+ * PLAYER walks backwards: a random walk that pulls the PUSHABLE OBJECT behind it along the way. Since every
+ * pull can be undone by a push, the position reached is solvable. Candidates with a PUSHABLE OBJECT left on
+ * its SOLUTION, a deadlock, or fewer pushes than asked are rejected, and the others are solved with the
+ * Solver to measure them. The candidates are made on a pool of workers, each with its own GameLogic.
+ * <p>
+ * The levels kept are ranked from the easiest to the hardest by the states the Solver needed and by their
+ * pushes, then written as levelN.txt and solutionN.txt after the levels already in the output directory,
+ * with their solutions in Solutions/generated.txt in the replay format of ReplayRunner. The output directory
+ * has to be given, so generated levels never land in the levels of the game by accident, and they are played
+ * with -Dgame.dir set to it.
+ * <p>
+ * Usage: java LevelGenerator -out dir [-count N] [-width N] [-height N] [-boxes N] [-walls percent]
+ * [-minPushes N] [-maxNodes N] [-threads N] [-seed N]
+ * */
+public class LevelGenerator {
+    private static final int[] DX = {-1, 1, 0, 0};
+    private static final int[] DY = {0, 0, -1, 1};
+
+    private int width = 10;
+    private int height = 10;
+    private int boxes = 3;
+    private int wallPercent = 20;
+    private int minPushes = 8;
+    private long maxNodes = 200_000;
+
+    /**
+     * A level kept by the generator
+     */
+    private record Candidate(long attempt, Board board, String moves, int pushes, long nodes) {
+        /**
+         * Return the difficulty used to rank the levels: the search effort, then the pushes
+         */
+        double difficulty() {
+            return Math.log(nodes + 1) / Math.log(2) + pushes / 4.0;
+        }
+    }
+
+    /**
+     * Generate the levels asked for on the command line
+     *
+     * @param args Options
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        LevelGenerator generator = new LevelGenerator();
+        int count = 100;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = System.nanoTime();
+        File out = null;
+        boolean usage = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-count" -> count = Integer.parseInt(args[++i]);
+                case "-width" -> generator.width = Integer.parseInt(args[++i]);
+                case "-height" -> generator.height = Integer.parseInt(args[++i]);
+                case "-boxes" -> generator.boxes = Integer.parseInt(args[++i]);
+                case "-walls" -> generator.wallPercent = Integer.parseInt(args[++i]);
+                case "-minPushes" -> generator.minPushes = Integer.parseInt(args[++i]);
+                case "-maxNodes" -> generator.maxNodes = Long.parseLong(args[++i]);
+                case "-threads" -> threads = Integer.parseInt(args[++i]);
+                case "-seed" -> seed = Long.parseLong(args[++i]);
+                case "-out" -> out = new File(args[++i]);
+                default -> usage = true;
+            }
+        }
+        if (usage || out == null) {
+            System.out.println("Usage: java LevelGenerator -out dir [-count N] [-width N] [-height N] [-boxes N] "
+                    + "[-walls percent] [-minPushes N] [-maxNodes N] [-threads N] [-seed N]");
+            return;
+        }
+
+        long start = System.nanoTime();
+        AtomicInteger attempts = new AtomicInteger();
+        List<Candidate> kept = generator.generate(count, threads, seed, attempts);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        int first = new Levels(out).getLevelCount() + 1;
+        new File(out, "Levels").mkdirs();
+        new File(out, "Solutions").mkdirs();
+        try (PrintWriter replays = new PrintWriter(new FileWriter(new File(new File(out, "Solutions"), "generated.txt"), true))) {
+            for (int i = 0; i < kept.size(); i++) {
+                Candidate candidate = kept.get(i);
+                int num = first + i;
+                write(candidate.board(), Levels.levelFile(out, num), Levels.solutionFile(out, num));
+                replays.print(num + " " + candidate.moves() + " won\r\n");
+                System.out.printf("level%d: %d pushes, %d moves, %d states, difficulty %.1f%n", num,
+                        candidate.pushes(), candidate.moves().length(), candidate.nodes(), candidate.difficulty());
+            }
+        }
+        System.out.printf("%d levels from %d candidates in %.1f s (%.0f levels per minute)%n", kept.size(),
+                attempts.get(), seconds, kept.size() * 60 / seconds);
+    }
+
+    /**
+     * Make candidates on a pool of workers until enough were kept
+     *
+     * @param count Number of levels to keep
+     * @param threads Number of workers
+     * @param seed Seed of the first candidate, every candidate uses the next one
+     * @param attempts Counter receiving the number of candidates made
+     * @return Levels kept, from the easiest to the hardest
+     */
+    private List<Candidate> generate(int count, int threads, long seed, AtomicInteger attempts) throws InterruptedException {
+        ConcurrentLinkedQueue<Candidate> found = new ConcurrentLinkedQueue<>();
+        AtomicInteger accepted = new AtomicInteger();
+        long maxAttempts = Math.max(1000L, 1000L * count);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                GameLogic gameLogic = new GameLogic(1, 1);
+                ForkJoinPool solverPool = new ForkJoinPool(1);
+                int attempt;
+                while (accepted.get() < count && (attempt = attempts.getAndIncrement()) < maxAttempts) {
+                    Candidate candidate = candidate(gameLogic, solverPool, attempt, new SplittableRandom(seed + attempt));
+                    if (candidate != null) {
+                        found.add(candidate);
+                        accepted.incrementAndGet();
+                    }
+                }
+                solverPool.shutdown();
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+
+        /* Keep the first candidates in seed order so a seed always gives the same levels */
+        return found.stream()
+                .sorted(Comparator.comparingLong(Candidate::attempt))
+                .limit(count)
+                .sorted(Comparator.comparingDouble(Candidate::difficulty))
+                .toList();
+    }
+
+    /**
+     * Make one candidate and solve it
+     *
+     * @return Candidate, or null if it was rejected
+     */
+    private Candidate candidate(GameLogic gameLogic, ForkJoinPool solverPool, long attempt, SplittableRandom random) {
+        Board board = room(random);
+        if (board == null) {
+            return null;
+        }
+        pullBack(board, random);
+        gameLogic.loadBoard(board);
+        if (gameLogic.getBoxesOnGoals() > 0 || gameLogic.isDeadlocked()) {
+            return null;
+        }
+        int bound = 0;
+        for (int cell = 0; cell < width * height; cell++) {
+            if (board.getType(cell) == 3) {
+                bound += gameLogic.getDeadlock().getDistance(cell);
+            }
+        }
+        if (bound < minPushes / 2) {
+            return null;
+        }
+        Solver.Result result = new Solver(gameLogic, maxNodes, solverPool).solve();
+        if (!result.isSolved() || result.getPushes() < minPushes) {
+            return null;
+        }
+        return new Candidate(attempt, board, result.getMoves(), result.getPushes(), result.getNodes());
+    }
+
+    /**
+     * Make a room of random WALLS surrounded by WALLS, keeping its largest open area, with the PUSHABLE
+     * OBJECTS on their SOLUTIONS and the PLAYER on a free square
+     *
+     * @return Board of the solved room, or null if the open area is too small
+     */
+    private Board room(SplittableRandom random) {
+        Board board = new Board(width, height);
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                boolean border = i == 0 || j == 0 || i == width - 1 || j == height - 1;
+                board.setType(i, j, border || random.nextInt(100) < wallPercent ? 2 : 0);
+            }
+        }
+
+        /* Wall off every open area but the largest */
+        Reachability reachability = new Reachability(width, height);
+        int largest = -1;
+        int largestCount = 0;
+        for (int cell = 0; cell < width * height; cell++) {
+            if (board.getType(cell) == 0) {
+                reachability.compute(board, cell);
+                if (reachability.getCount() > largestCount) {
+                    largest = cell;
+                    largestCount = reachability.getCount();
+                }
+            }
+        }
+        if (largestCount < boxes * 4 + 1) {
+            return null;
+        }
+        reachability.compute(board, largest);
+        int[] floor = new int[largestCount];
+        int size = 0;
+        for (int cell = 0; cell < width * height; cell++) {
+            if (reachability.isReachable(cell)) {
+                floor[size++] = cell;
+            } else {
+                board.setType(cell / height, cell % height, 2);
+            }
+        }
+
+        /* Shuffle the floor to take the SOLUTIONS and the PLAYER from its first squares */
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = floor[i];
+            floor[i] = floor[j];
+            floor[j] = swap;
+        }
+        for (int i = 0; i < boxes; i++) {
+            board.setType(floor[i] / height, floor[i] % height, 3);
+            board.setGoal(floor[i] / height, floor[i] % height, true);
+        }
+        board.setType(floor[boxes] / height, floor[boxes] % height, 1);
+        return board;
+    }
+
+    /**
+     * Walk the PLAYER backwards from the solved room, pulling the PUSHABLE OBJECT behind it most of the time
+     */
+    private void pullBack(Board board, SplittableRandom random) {
+        int player = -1;
+        for (int cell = 0; cell < width * height; cell++) {
+            if (board.getType(cell) == 1) {
+                player = cell;
+            }
+        }
+        int x = player / height;
+        int y = player % height;
+        int steps = width * height * boxes * 2;
+        for (int step = 0; step < steps; step++) {
+            int d = random.nextInt(4);
+            int nextX = x + DX[d];
+            int nextY = y + DY[d];
+            if (board.getType(nextX, nextY) != 0) {
+                continue;
+            }
+            int boxX = x - DX[d];
+            int boxY = y - DY[d];
+            board.setType(x, y, 0);
+            if (board.getType(boxX, boxY) == 3 && random.nextInt(4) != 0) {
+                board.setType(boxX, boxY, 0);
+                board.setType(x, y, 3);
+            }
+            board.setType(nextX, nextY, 1);
+            x = nextX;
+            y = nextY;
+        }
+    }
+
+    /**
+     * Write the level and solution files, one line for every Y coordinate like the existing files
+     *
+     * @param board Board to write
+     * @param levelFile Level file
+     * @param solutionFile Solution file
+     */
+    private static void write(Board board, File levelFile, File solutionFile) throws IOException {
+        try (Writer level = new BufferedWriter(new FileWriter(levelFile));
+             Writer solution = new BufferedWriter(new FileWriter(solutionFile))) {
+            for (int j = 0; j < board.getCol(); j++) {
+                for (int i = 0; i < board.getRow(); i++) {
+                    String separator = i < board.getRow() - 1 ? "," : "\r\n";
+                    level.write(board.getType(i, j) + separator);
+                    solution.write((board.isGoal(i, j) ? 1 : 0) + separator);
+                }
+            }
+        }
+    }
+}
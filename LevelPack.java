@@ -0,0 +1,164 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * Binary level pack holding every level and solution in a single memory-mapped file.
+ * <p>
+ * Layout, big endian:
+ * header: magic "LVPK", version, number of levels
+ * index: offset of every level record from the start of the file
+ * record: rows (short), columns (short), block types at 2 bits per cell, then solutions at 1 bit per cell
+ * <p>
+ * Opening a pack only maps the file and reads the header, a level is decoded when it is asked for.
+ * <p>
+ * Usage: java LevelPack &lt;directory with Levels and Solutions&gt; &lt;output pack&gt;
+ * */
+public class LevelPack implements Closeable {
+    private static final int MAGIC = 0x4C56504B; // "LVPK"
+    private static final int VERSION = 1;
+    private static final int HEADER = 12;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int count;
+
+    private LevelPack(FileChannel channel) throws IOException {
+        this.channel = channel;
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            channel.close();
+            throw new IOException("Not a level pack");
+        }
+        count = buffer.getInt(8);
+    }
+
+    /**
+     * Memory-map a level pack file
+     *
+     * @param file Pack file
+     * @return Opened level pack
+     * @throws IOException If the file cannot be read or is not a level pack
+     */
+    public static LevelPack open(File file) throws IOException {
+        return new LevelPack(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+    }
+
+    /**
+     * Return the number of levels in the pack
+     *
+     * @return Number of levels
+     */
+    public int getLevelCount() {
+        return count;
+    }
+
+    /**
+     * Decode the level with the given number
+     *
+     * @param num Level number starting at 1
+     * @return Level and solution, or null if the pack has no such level
+     */
+    public LevelData getLevel(int num) {
+        if (num < 1 || num > count) {
+            return null;
+        }
+        ByteBuffer record = buffer.duplicate();
+        record.position((int) buffer.getLong(HEADER + 8 * (num - 1)));
+        int row = record.getShort();
+        int col = record.getShort();
+        int cells = row * col;
+        int[][] level = new int[row][col];
+        int[][] solution = new int[row][col];
+        int base = record.position();
+        for (int cell = 0; cell < cells; cell++) {
+            int bits = record.get(base + (cell >>> 2)) >>> ((cell & 3) << 1);
+            level[cell / col][cell % col] = bits & 3;
+        }
+        base += (cells + 3) >>> 2;
+        for (int cell = 0; cell < cells; cell++) {
+            int bits = record.get(base + (cell >>> 3)) >>> (cell & 7);
+            solution[cell / col][cell % col] = bits & 1;
+        }
+        return new LevelData(level, solution);
+    }
+
+    /**
+     * Unmap the pack by closing its file
+     *
+     * @throws IOException If the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Compile the given levels into a pack file
+     *
+     * @param levels Levels in order, the first one is level 1
+     * @param file Pack file to write
+     * @throws IOException If the file cannot be written
+     */
+    public static void write(LevelData[] levels, File file) throws IOException {
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(records);
+        long[] offsets = new long[levels.length];
+        long start = HEADER + 8L * levels.length;
+        for (int i = 0; i < levels.length; i++) {
+            offsets[i] = start + out.size();
+            int[][] level = levels[i].getLevel();
+            int[][] solution = levels[i].getSolution();
+            int row = level.length;
+            int col = level[0].length;
+            int cells = row * col;
+            out.writeShort(row);
+            out.writeShort(col);
+            byte[] types = new byte[(cells + 3) >>> 2];
+            byte[] goals = new byte[(cells + 7) >>> 3];
+            for (int cell = 0; cell < cells; cell++) {
+                types[cell >>> 2] |= (level[cell / col][cell % col] & 3) << ((cell & 3) << 1);
+                goals[cell >>> 3] |= (solution[cell / col][cell % col] & 1) << (cell & 7);
+            }
+            out.write(types);
+            out.write(goals);
+        }
+
+        try (DataOutputStream pack = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            pack.writeInt(MAGIC);
+            pack.writeInt(VERSION);
+            pack.writeInt(levels.length);
+            for (long offset : offsets) {
+                pack.writeLong(offset);
+            }
+            records.writeTo(pack);
+        }
+    }
+
+    /**
+     * Compile levelN.txt and solutionN.txt from a directory, starting at 1 until a level is missing
+     *
+     * @param args Directory holding the Levels and Solutions folders, and the output pack file
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Usage: java LevelPack <directory with Levels and Solutions> <output pack>");
+            return;
+        }
+        File dir = new File(args[0]);
+        ArrayList<LevelData> levels = new ArrayList<>();
+        for (int num = 1; Levels.levelFile(dir, num).exists(); num++) {
+            Levels loader = new Levels(dir);
+            loader.loadLevel(num);
+            loader.loadSolution(num);
+            levels.add(new LevelData(loader.getLevel(), loader.getSolution()));
+        }
+        long start = System.nanoTime();
+        write(levels.toArray(new LevelData[0]), new File(args[1]));
+        System.out.printf("Wrote %d levels to %s in %.2f ms%n", levels.size(), args[1],
+                (System.nanoTime() - start) / 1_000_000.0);
+    }
+}
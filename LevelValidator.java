@@ -0,0 +1,281 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Command line tool that checks every level of a directory in parallel and prints a report.
+ * <p>
+ * Levels only rejects files holding something other than numbers and pads short lines, and GameLogic only
+ * refuses a level without a PLAYER, so the validator reads the files itself and reports, for every
+ * levelN.txt and its solutionN.txt:
+ * <ul>
+ * <li>lines of different widths, values that are not block types, and a solution of another size</li>
+ * <li>a level without exactly one PLAYER, without SOLUTIONS, or with more or fewer PUSHABLE OBJECTS
+ * than SOLUTIONS</li>
+ * <li>PUSHABLE OBJECTS and SOLUTIONS the PLAYER can never walk to, even with every PUSHABLE OBJECT
+ * removed</li>
+ * <li>PUSHABLE OBJECTS already on a dead square or frozen at the start, using Deadlock</li>
+ * </ul>
+ * Warnings are given for levels already solved, floors open to the edge of the grid, and duplicate
+ * levels. Every valid level is analyzed with its size, reachable area, and the lower bound of pushes
+ * from the Deadlock distances.
+ * <p>
+ * Usage: java LevelValidator [-errors] [dir], dir holding the Levels and Solutions folders, -Dgame.dir by
+ * default. -errors only prints the levels with errors. Exits with status 1 if a level has an error.
+ * */
+public class LevelValidator {
+    private static final Pattern levelName = Pattern.compile("level(\\d+)\\.txt");
+
+    /* Every worker thread checks its levels on its own GameLogic */
+    private static final ThreadLocal<GameLogic> gameLogics = ThreadLocal.withInitial(() -> new GameLogic(1, 1));
+
+    /**
+     * Findings of one level
+     */
+    private record Report(int level, String summary, List<String> errors, List<String> warnings, long hash) {
+    }
+
+    /**
+     * Validate the directory given on the command line
+     *
+     * @param args Options and directory
+     */
+    public static void main(String[] args) throws IOException {
+        File dir = new File(System.getProperty("game.dir", "src"));
+        boolean errorsOnly = false;
+        for (String arg : args) {
+            if (arg.equals("-errors")) {
+                errorsOnly = true;
+            } else {
+                dir = new File(arg);
+            }
+        }
+        Path levelDir = new File(dir, "Levels").toPath();
+        if (!Files.isDirectory(levelDir)) {
+            System.out.println("No Levels folder in " + dir);
+            System.exit(1);
+        }
+
+        long start = System.nanoTime();
+        File root = dir;
+        List<Report> reports;
+        try (Stream<Path> files = Files.list(levelDir)) {
+            reports = files.parallel()
+                    .map(path -> levelName.matcher(path.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> validate(root, Integer.parseInt(matcher.group(1))))
+                    .sorted(Comparator.comparingInt(Report::level))
+                    .toList();
+        }
+
+        /* The level with the lowest number is the original, the others are its duplicates */
+        HashMap<Long, Integer> seen = new HashMap<>();
+        for (Report report : reports) {
+            Integer original = report.hash() != 0 ? seen.putIfAbsent(report.hash(), report.level()) : null;
+            if (original != null) {
+                report.warnings().add("same level as level" + original);
+            }
+        }
+
+        int errors = 0;
+        int warnings = 0;
+        for (Report report : reports) {
+            errors += report.errors().isEmpty() ? 0 : 1;
+            warnings += report.warnings().isEmpty() ? 0 : 1;
+            if (errorsOnly && report.errors().isEmpty()) {
+                continue;
+            }
+            String status = !report.errors().isEmpty() ? "ERROR" : !report.warnings().isEmpty() ? "WARN" : "OK";
+            System.out.println(("level" + report.level() + " " + status + " " + report.summary()).trim());
+            for (String error : report.errors()) {
+                System.out.println("  error: " + error);
+            }
+            for (String warning : report.warnings()) {
+                System.out.println("  warning: " + warning);
+            }
+        }
+        System.out.printf("%d levels, %d with errors, %d with warnings in %.3f s%n",
+                reports.size(), errors, warnings, (System.nanoTime() - start) / 1e9);
+        System.exit(errors > 0 ? 1 : 0);
+    }
+
+    /**
+     * Check one level and its solution
+     *
+     * @param dir Directory holding the Levels and Solutions folders
+     * @param num Level number
+     * @return Report of the level
+     */
+    private static Report validate(File dir, int num) {
+        List<String> errors = new ArrayList<>();
+        List<String> warnings = new ArrayList<>();
+        int[][] level = read(Levels.levelFile(dir, num), 3, errors);
+        File solutionFile = Levels.solutionFile(dir, num);
+        int[][] solution = null;
+        if (!solutionFile.exists()) {
+            errors.add(solutionFile.getName() + " is missing");
+        } else {
+            solution = read(solutionFile, 1, errors);
+        }
+        if (level == null || solution == null || !errors.isEmpty()) {
+            return new Report(num, "", errors, warnings, 0);
+        }
+        int row = level.length;
+        int col = row > 0 ? level[0].length : 0;
+        if (solution.length != row || (row > 0 && solution[0].length != col)) {
+            errors.add("solution is " + solution.length + "x" + (solution.length > 0 ? solution[0].length : 0)
+                    + " but the level is " + row + "x" + col);
+            return new Report(num, "", errors, warnings, 0);
+        }
+
+        Board board = new Board(row, col);
+        int players = 0;
+        int boxes = 0;
+        int goals = 0;
+        int playerCell = -1;
+        for (int i = 0; i < row; i++) {
+            for (int j = 0; j < col; j++) {
+                board.setType(i, j, level[i][j]);
+                board.setGoal(i, j, solution[i][j] == 1);
+                if (level[i][j] == 1) {
+                    players++;
+                    playerCell = board.index(i, j);
+                } else if (level[i][j] == 3) {
+                    boxes++;
+                }
+                if (solution[i][j] == 1) {
+                    goals++;
+                    if (level[i][j] == 2) {
+                        errors.add("solution at " + i + "," + j + " is on a wall");
+                    }
+                }
+            }
+        }
+        String summary = row + "x" + col + " boxes " + boxes + " goals " + goals;
+        if (players != 1) {
+            errors.add(players + " players instead of 1");
+        }
+        if (goals == 0) {
+            errors.add("no solutions");
+        }
+        if (boxes > goals) {
+            errors.add(boxes + " boxes for " + goals + " solutions");
+        } else if (boxes < goals) {
+            errors.add(boxes + " boxes for " + goals + " solutions, the level can never be completed");
+        }
+        if (!errors.isEmpty()) {
+            return new Report(num, summary, errors, warnings, 0);
+        }
+
+        /* Walk the floor with every PUSHABLE OBJECT removed: anything outside it is out of reach */
+        Board floor = new Board(board);
+        for (int cell = 0; cell < row * col; cell++) {
+            if (floor.getType(cell) == 1 || floor.getType(cell) == 3) {
+                floor.setType(cell / col, cell % col, 0);
+            }
+        }
+        Reachability reachability = new Reachability(row, col);
+        reachability.compute(floor, playerCell);
+        boolean open = false;
+        for (int i = 0; i < row; i++) {
+            for (int j = 0; j < col; j++) {
+                int cell = board.index(i, j);
+                if (!reachability.isReachable(cell)) {
+                    if (board.getType(cell) == 3) {
+                        errors.add("box at " + i + "," + j + " cannot be reached");
+                    }
+                    if (board.isGoal(i, j)) {
+                        errors.add("solution at " + i + "," + j + " cannot be reached");
+                    }
+                } else if (i == 0 || j == 0 || i == row - 1 || j == col - 1) {
+                    open = true;
+                }
+            }
+        }
+        if (open) {
+            warnings.add("the floor reaches the edge of the grid instead of a wall");
+        }
+
+        GameLogic gameLogic = gameLogics.get();
+        gameLogic.loadBoard(board);
+        Deadlock deadlock = gameLogic.getDeadlock();
+        int bound = 0;
+        for (int cell = 0; cell < row * col; cell++) {
+            if (board.getType(cell) == 3) {
+                if (deadlock.isDeadSquare(cell)) {
+                    errors.add("box at " + cell / col + "," + cell % col + " is on a dead square");
+                } else {
+                    bound += deadlock.getDistance(cell);
+                }
+            }
+        }
+        if (gameLogic.isDeadlocked() && errors.isEmpty()) {
+            errors.add("boxes are frozen off their solutions at the start");
+        }
+        if (gameLogic.isSolved()) {
+            warnings.add("already solved at the start");
+        }
+        summary += " reach " + reachability.getCount() + " pushes>=" + bound;
+        return new Report(num, summary, errors, warnings, gameLogic.getZobrist().hashLevel(board));
+    }
+
+    /**
+     * Read a comma separated file into a matrix indexed as [X][Y] like Levels, reporting lines of different
+     * widths and values outside 0 to max
+     *
+     * @param file File to read
+     * @param max Largest value allowed
+     * @param errors List receiving the problems found
+     * @return 2D integer array, or null if the file could not be read
+     */
+    private static int[][] read(File file, int max, List<String> errors) {
+        List<String[]> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            int number = 0;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] tokens = line.split(",");
+                if (!lines.isEmpty() && tokens.length != lines.get(0).length) {
+                    errors.add(file.getName() + " line " + number + " has " + tokens.length
+                            + " values instead of " + lines.get(0).length);
+                }
+                lines.add(tokens);
+            }
+        } catch (IOException err) {
+            errors.add(file.getName() + " cannot be read: " + err.getMessage());
+            return null;
+        }
+        if (lines.isEmpty()) {
+            errors.add(file.getName() + " is empty");
+            return null;
+        }
+        int width = lines.get(0).length;
+        int[][] matrix = new int[width][lines.size()];
+        for (int y = 0; y < lines.size(); y++) {
+            String[] tokens = lines.get(y);
+            for (int x = 0; x < Math.min(width, tokens.length); x++) {
+                try {
+                    int value = Integer.parseInt(tokens[x].trim());
+                    if (value < 0 || value > max) {
+                        errors.add(file.getName() + " value " + value + " at " + x + "," + y + " is not between 0 and " + max);
+                    }
+                    matrix[x][y] = value;
+                } catch (NumberFormatException err) {
+                    errors.add(file.getName() + " value \"" + tokens[x].trim() + "\" at " + x + "," + y + " is not a number");
+                }
+            }
+        }
+        return matrix;
+    }
+}
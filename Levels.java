@@ -1,91 +1,266 @@
 import java.io.*;
+import java.nio.file.Files;
 
 /**
  * Information class that contain the current level information with the methods to
  * load level and solution
+ * <p>
+ * The Levels and Solutions folders are looked up in the directory given by -Dgame.dir, "src" by default.
+ * When a LevelPack is set the levels are decoded from the pack instead of the text files, and when a
+ * LevelCatalog is set the levels are read from the catalog, such as an XSB collection.
+ * A level takes the size of its file: as many columns as the longest line and as many rows as lines.
  */
 public class Levels {
     private int[][] level;
     private int[][] solution;
-    private final int col;
-    private final int row;
+    private final File dir;
+    private LevelPack pack;
+    private LevelCatalog catalog;
 
     /**
-     * Initialize the required columns and rows for the file loading process
+     * Initialize the loader with the directory given by -Dgame.dir
+     */
+    public Levels() {
+        this(new File(System.getProperty("game.dir", "src")));
+    }
+
+    /**
+     * Initialize the loader with the directory of the level files
+     *
+     * @param dir Directory holding the Levels and Solutions folders
+     */
+    public Levels(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Return the level file of the given number
+     *
+     * @param dir Directory holding the Levels folder
+     * @param num Number for the game level
+     * @return Level file
+     */
+    public static File levelFile(File dir, int num) {
+        return new File(new File(dir, "Levels"), "level" + num + ".txt");
+    }
+
+    /**
+     * Return the solution file of the given number
+     *
+     * @param dir Directory holding the Solutions folder
+     * @param num Number for the game level
+     * @return Solution file
+     */
+    public static File solutionFile(File dir, int num) {
+        return new File(new File(dir, "Solutions"), "solution" + num + ".txt");
+    }
+
+    /**
+     * Load the levels from a binary level pack instead of the text files
+     *
+     * @param pack Level pack, or null to go back to the text files
+     */
+    public synchronized void setPack(LevelPack pack) {
+        this.pack = pack;
+    }
+
+    /**
+     * Load the levels from a catalog instead of the text files
+     *
+     * @param catalog Level catalog, or null to go back to the text files
+     */
+    public synchronized void setCatalog(LevelCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    /**
+     * Return the number of levels: the size of the catalog or the pack, or the number of level files
+     * numbered from 1 without a gap
+     *
+     * @return Number of levels
+     */
+    public synchronized int getLevelCount() {
+        if (catalog != null) {
+            return catalog.getLevelCount();
+        }
+        if (pack != null) {
+            return pack.getLevelCount();
+        }
+        int count = 0;
+        while (levelFile(dir, count + 1).exists()) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Load both the level and the solution with the given number, safe to call from several threads
      *
-     * @param col Columns of the game UI
-     * @param row Rows of the game UI
+     * @param num Number for the game level
+     * @return Level and solution, or null if the level does not exist
      */
-    public Levels(int col, int row) {
-        this.col = col;
-        this.row = row;
+    public synchronized LevelData load(int num) {
+        if (catalog != null) {
+            long start = System.nanoTime();
+            LevelData data = catalog.getLevel(num);
+            Metrics.get().levelLoad().recordSince(start);
+            return data;
+        }
+        if (pack != null ? num < 1 || num > pack.getLevelCount() : !levelFile(dir, num).exists()) {
+            return null;
+        }
+        long start = System.nanoTime();
+        try {
+            loadLevel(num);
+            loadSolution(num);
+        } catch (NumberFormatException err) {
+            System.out.println("Level " + num + " is damaged: " + err.getMessage());
+            return null;
+        }
+        Metrics.get().levelLoad().recordSince(start);
+        return new LevelData(level, solution);
     }
 
     /**
      * Loading method for level from the folder Levels by the specified num to load that .txt file
      *
      * @param num Number for the game level
+     * @throws NumberFormatException If the file holds anything but comma separated numbers
      */
     public void loadLevel(int num) {
-        try {
-            level = new int[col][row];
-            String str = ".\\src\\Levels\\level" + num + ".txt";
-            File file = new File(str);
-            if (file.exists()) {
-                BufferedReader reader = new BufferedReader(new FileReader(str));
-                String line = reader.readLine();
-                if (line != null) {
-                    String[] tokens;
-                    int i = 0;
-                    while (line != null) {
-                        tokens = line.split(",");
-                        for (int j = 0; j < tokens.length; j++) {
-                            level[j][i] = Integer.parseInt(tokens[j]);
-                        }
-                        i++;
-                        line = reader.readLine();
-                    }
-                }
-                reader.close();
+        if (pack != null) {
+            LevelData data = pack.getLevel(num);
+            if (data != null) {
+                level = data.getLevel();
             } else {
                 System.out.println("Level file doesn't exit!");
             }
-        } catch (IOException err) {
-            err.printStackTrace();
+            return;
+        }
+        File file = levelFile(dir, num);
+        if (file.exists()) {
+            level = readMatrix(file, 0, 0);
+        } else {
+            level = new int[0][0];
+            System.out.println("Level file doesn't exit!");
         }
     }
 
     /**
      * Loading method for solution from the folder Solutions by the specified num to load that .txt file
+     * The solution takes the size of the last loaded level
      *
      * @param num Number for the game level
+     * @throws NumberFormatException If the file holds anything but comma separated numbers
      */
     public void loadSolution(int num) {
-        try {
-            solution = new int[col][row];
-            String str = ".\\src\\Solutions\\solution" + num + ".txt";
-            File file = new File(str);
-            if (file.exists()) {
-                BufferedReader reader = new BufferedReader(new FileReader(str));
-                String line = reader.readLine();
-                if (line != null) {
-                    String[] tokens;
-                    int i = 0;
-                    while (line != null) {
-                        tokens = line.split(",");
-                        for (int j = 0; j < tokens.length; j++) {
-                            solution[j][i] = Integer.parseInt(tokens[j]);
-                        }
-                        i++;
-                        line = reader.readLine();
-                    }
-                }
+        if (pack != null) {
+            LevelData data = pack.getLevel(num);
+            if (data != null) {
+                solution = data.getSolution();
             } else {
                 System.out.println("Solution file doesn't exist!");
             }
+            return;
+        }
+        File file = solutionFile(dir, num);
+        int width = level != null ? level.length : 0;
+        int height = width > 0 ? level[0].length : 0;
+        if (file.exists()) {
+            solution = readMatrix(file, width, height);
+        } else {
+            solution = new int[width][height];
+            System.out.println("Solution file doesn't exist!");
+        }
+    }
+
+    /**
+     * Read a comma separated file into a matrix indexed as [X][Y], X being the position in the line
+     * and Y the line number.
+     * The bytes of the file are scanned twice, once for the size and once for the numbers, without
+     * creating a String for the lines or the tokens.
+     *
+     * @param file File to read
+     * @param width Columns of the matrix, or 0 to use the longest line
+     * @param height Rows of the matrix, or 0 to use the number of lines
+     * @return 2D integer array
+     * @throws NumberFormatException If a value is empty or a character is neither a digit, a comma, nor a space
+     */
+    private static int[][] readMatrix(File file, int width, int height) {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file.toPath());
         } catch (IOException err) {
             err.printStackTrace();
+            bytes = new byte[0];
+        }
+        int lines = 0;
+        int longest = 0;
+        int tokens = 1;
+        boolean blank = true;
+        for (int i = 0; i <= bytes.length; i++) {
+            byte b = i < bytes.length ? bytes[i] : (byte) '\n';
+            if (b == '\n') {
+                if (!blank) {
+                    lines++;
+                    longest = Math.max(longest, tokens);
+                }
+                tokens = 1;
+                blank = true;
+            } else if (b == ',') {
+                tokens++;
+                blank = false;
+            } else if (b > ' ') {
+                blank = false;
+            }
+        }
+        if (width == 0) {
+            width = longest;
+        }
+        if (height == 0) {
+            height = lines;
+        }
+        int[][] matrix = new int[width][height];
+        int y = 0;
+        int x = 0;
+        int value = 0;
+        int digits = 0;
+        int line = 1;
+        blank = true;
+        for (int i = 0; i <= bytes.length && y < height; i++) {
+            byte b = i < bytes.length ? bytes[i] : (byte) '\n';
+            if (b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+                digits++;
+                blank = false;
+            } else if (b == ',' || b == '\n') {
+                if (b == ',' || !blank) {
+                    if (digits == 0) {
+                        throw new NumberFormatException(file.getName() + " line " + line + ": empty value");
+                    }
+                    if (x < width) {
+                        matrix[x][y] = value;
+                    }
+                }
+                value = 0;
+                digits = 0;
+                x++;
+                if (b == ',') {
+                    blank = false;
+                } else {
+                    if (!blank) {
+                        y++;
+                    }
+                    x = 0;
+                    blank = true;
+                    line++;
+                }
+            } else if (b != ' ' && b != '\t' && b != '\r') {
+                String shown = b > ' ' && b < 127 ? "'" + (char) b + "'" : String.format("0x%02X", b & 0xFF);
+                throw new NumberFormatException(file.getName() + " line " + line + ": unexpected character " + shown);
+            }
         }
+        return matrix;
     }
 
     /**
@@ -0,0 +1,185 @@
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runtime counters and latency histograms of the game, shared by every thread of the process.
+ * <p>
+ * The game loop, the drawing, the Restart button, starting a level, and reading level files each record
+ * their duration in a LatencyHistogram. The metrics are registered once on the platform MBeanServer so they
+ * can be read with JConsole without attaching a profiler, and GamePanel shows them in its F3 overlay.
+ * The allocation rate is measured from the bytes allocated by every thread, when the JVM supports it.
+ * */
+public class Metrics implements MetricsMXBean {
+    private static final Metrics instance = new Metrics();
+    private static final long SAMPLE_WINDOW = 1_000_000_000L;
+
+    private final LatencyHistogram tick = new LatencyHistogram();
+    private final LatencyHistogram draw = new LatencyHistogram();
+    private final LatencyHistogram action = new LatencyHistogram();
+    private final LatencyHistogram startLevel = new LatencyHistogram();
+    private final LatencyHistogram levelLoad = new LatencyHistogram();
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder pushes = new LongAdder();
+
+    private final com.sun.management.ThreadMXBean threads;
+    private long sampleTime;
+    private long sampleBytes;
+    private long allocationRate = -1;
+
+    /**
+     * Initialize the metrics and register them on the platform MBeanServer
+     */
+    private Metrics() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean sun && sun.isThreadAllocatedMemorySupported()) {
+            sun.setThreadAllocatedMemoryEnabled(true);
+            threads = sun;
+        } else {
+            threads = null;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("PuzzleGame:type=Metrics"));
+        } catch (Exception err) {
+            System.out.println("Metrics are not available over JMX: " + err);
+        }
+    }
+
+    /**
+     * Return the metrics of the process
+     *
+     * @return Shared Metrics
+     */
+    public static Metrics get() {
+        return instance;
+    }
+
+    /**
+     * Return the histogram of the logic ticks of the game loop
+     *
+     * @return LatencyHistogram in nanoseconds
+     */
+    public LatencyHistogram tick() {
+        return tick;
+    }
+
+    /**
+     * Return the histogram of the drawn frames
+     *
+     * @return LatencyHistogram in nanoseconds
+     */
+    public LatencyHistogram draw() {
+        return draw;
+    }
+
+    /**
+     * Return the histogram of the button actions
+     *
+     * @return LatencyHistogram in nanoseconds
+     */
+    public LatencyHistogram action() {
+        return action;
+    }
+
+    /**
+     * Return the histogram of starting a level
+     *
+     * @return LatencyHistogram in nanoseconds
+     */
+    public LatencyHistogram startLevel() {
+        return startLevel;
+    }
+
+    /**
+     * Return the histogram of reading a level and its solution from disk
+     *
+     * @return LatencyHistogram in nanoseconds
+     */
+    public LatencyHistogram levelLoad() {
+        return levelLoad;
+    }
+
+    /**
+     * Count an applied move
+     *
+     * @param result GameLogic.BLOCKED, GameLogic.WALKED, or GameLogic.PUSHED
+     */
+    public void move(int result) {
+        moves.increment();
+        if (result == GameLogic.PUSHED) {
+            pushes.increment();
+        }
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getTick() {
+        return tick.snapshot();
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getDraw() {
+        return draw.snapshot();
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getAction() {
+        return action.snapshot();
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getStartLevel() {
+        return startLevel.snapshot();
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getLevelLoad() {
+        return levelLoad.snapshot();
+    }
+
+    @Override
+    public long getMoves() {
+        return moves.sum();
+    }
+
+    @Override
+    public long getPushes() {
+        return pushes.sum();
+    }
+
+    /**
+     * Return the rate at which the process allocates memory, measured over the last second or more.
+     * Sampling allocates a little itself, so it is only done once per window.
+     */
+    @Override
+    public synchronized long getAllocationRate() {
+        if (threads == null) {
+            return -1;
+        }
+        long now = System.nanoTime();
+        if (sampleTime == 0 || now - sampleTime >= SAMPLE_WINDOW) {
+            long bytes = 0;
+            for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+                bytes += Math.max(0, allocated);
+            }
+            if (sampleTime != 0) {
+                /* Threads that ended take their bytes with them, so the total can go down */
+                allocationRate = Math.max(0, (long) ((bytes - sampleBytes) * (double) SAMPLE_WINDOW / (now - sampleTime)));
+            }
+            sampleTime = now;
+            sampleBytes = bytes;
+        }
+        return allocationRate;
+    }
+
+    @Override
+    public void reset() {
+        tick.reset();
+        draw.reset();
+        action.reset();
+        startLevel.reset();
+        levelLoad.reset();
+        moves.reset();
+        pushes.reset();
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * Management interface of Metrics, shown under "PuzzleGame:type=Metrics" in JConsole or any JMX client.
+ * Durations are given in microseconds.
+ */
+public interface MetricsMXBean {
+    /**
+     * Return the statistics of the logic ticks of the game loop
+     *
+     * @return Tick durations
+     */
+    LatencyHistogram.Snapshot getTick();
+
+    /**
+     * Return the statistics of the drawn frames
+     *
+     * @return Draw durations
+     */
+    LatencyHistogram.Snapshot getDraw();
+
+    /**
+     * Return the statistics of the button actions
+     *
+     * @return Action durations
+     */
+    LatencyHistogram.Snapshot getAction();
+
+    /**
+     * Return the statistics of starting a level
+     *
+     * @return Start level durations
+     */
+    LatencyHistogram.Snapshot getStartLevel();
+
+    /**
+     * Return the statistics of reading a level and its solution from disk
+     *
+     * @return Level file durations
+     */
+    LatencyHistogram.Snapshot getLevelLoad();
+
+    /**
+     * Return the number of moves applied
+     *
+     * @return Moves, including the blocked ones
+     */
+    long getMoves();
+
+    /**
+     * Return the number of moves that pushed a PUSHABLE OBJECT
+     *
+     * @return Pushes
+     */
+    long getPushes();
+
+    /**
+     * Return the rate at which the process allocates memory
+     *
+     * @return Bytes per second, or -1 if the JVM cannot measure it
+     */
+    long getAllocationRate();
+
+    /**
+     * Forget every recorded duration and counter
+     */
+    void reset();
+}
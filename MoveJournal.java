@@ -0,0 +1,207 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Undo/redo history of the moves of a level, stored as 3 bits per move instead of copies of the grid.
+ * <p>
+ * A move is its direction index (see GameLogic.direction) in the low 2 bits and a push flag in the
+ * third bit, and 21 moves are packed into every long. Recording a move after an undo drops the moves
+ * that could have been redone.
+ * */
+public class MoveJournal {
+    private static final int BITS = 3;
+    private static final int PER_WORD = 64 / BITS;
+
+    private long[] words = new long[16];
+    private int size;
+    private int position;
+    private int pushes;
+
+    /**
+     * Pack a direction and a push flag into a move code
+     *
+     * @param direction Direction index
+     * @param push If the move pushed a PUSHABLE OBJECT
+     * @return Move code
+     */
+    public static int encode(int direction, boolean push) {
+        return direction | (push ? 4 : 0);
+    }
+
+    /**
+     * Return the direction index of a move code
+     *
+     * @param code Move code
+     * @return Direction index
+     */
+    public static int direction(int code) {
+        return code & 3;
+    }
+
+    /**
+     * Return if a move code is a push
+     *
+     * @param code Move code
+     * @return If the move pushed true, otherwise false
+     */
+    public static boolean isPush(int code) {
+        return (code & 4) != 0;
+    }
+
+    /**
+     * Record a move at the current position, forgetting any move that could have been redone
+     *
+     * @param direction Direction index
+     * @param push If the move pushed a PUSHABLE OBJECT
+     */
+    public void record(int direction, boolean push) {
+        size = position;
+        if (size / PER_WORD == words.length) {
+            words = Arrays.copyOf(words, words.length * 2);
+        }
+        set(size, encode(direction, push));
+        size++;
+        position = size;
+        if (push) {
+            pushes++;
+        }
+    }
+
+    /**
+     * Step back over the last move
+     *
+     * @return Code of the move to undo, or -1 if there is nothing to undo
+     */
+    public int undo() {
+        if (position == 0) {
+            return -1;
+        }
+        position--;
+        int code = get(position);
+        if (isPush(code)) {
+            pushes--;
+        }
+        return code;
+    }
+
+    /**
+     * Step forward over the next undone move
+     *
+     * @return Code of the move to redo, or -1 if there is nothing to redo
+     */
+    public int redo() {
+        if (position == size) {
+            return -1;
+        }
+        int code = get(position++);
+        if (isPush(code)) {
+            pushes++;
+        }
+        return code;
+    }
+
+    /**
+     * Return the code of the move at the given index
+     *
+     * @param index Move index, less than getSize()
+     * @return Move code
+     */
+    public int get(int index) {
+        return (int) (words[index / PER_WORD] >>> (index % PER_WORD * BITS)) & 7;
+    }
+
+    private void set(int index, int code) {
+        int shift = index % PER_WORD * BITS;
+        int word = index / PER_WORD;
+        words[word] = (words[word] & ~(7L << shift)) | ((long) code << shift);
+    }
+
+    /**
+     * Return the number of moves played, which is the position in the history
+     *
+     * @return Current position
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Return the number of pushes among the moves played
+     *
+     * @return Pushes played
+     */
+    public int getPushes() {
+        return pushes;
+    }
+
+    /**
+     * Return the number of recorded moves including the ones that can be redone
+     *
+     * @return Recorded moves
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Forget every move
+     */
+    public void clear() {
+        size = 0;
+        position = 0;
+        pushes = 0;
+    }
+
+    /**
+     * Write the moves and the position: the size, the position, then the packed words holding the moves
+     *
+     * @param out Output to write to
+     * @throws IOException If writing fails
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(size);
+        out.writeInt(position);
+        for (int i = 0; i < (size + PER_WORD - 1) / PER_WORD; i++) {
+            out.writeLong(words[i]);
+        }
+    }
+
+    /**
+     * Replace the moves and the position with the ones written by write()
+     *
+     * @param in Input to read from
+     * @throws IOException If reading fails or the data is not a journal
+     */
+    public void read(DataInput in) throws IOException {
+        int newSize = in.readInt();
+        int newPosition = in.readInt();
+        if (newSize < 0 || newPosition < 0 || newPosition > newSize) {
+            throw new IOException("Not a move journal");
+        }
+        int count = (newSize + PER_WORD - 1) / PER_WORD;
+        if (count >= words.length) {
+            words = new long[Integer.highestOneBit(count) << 1];
+        }
+        for (int i = 0; i < count; i++) {
+            words[i] = in.readLong();
+        }
+        size = newSize;
+        position = newPosition;
+        pushes = countPushes();
+    }
+
+    /**
+     * Count the pushes among the moves before the position
+     */
+    private int countPushes() {
+        int count = 0;
+        for (int i = 0; i < position; i++) {
+            if (isPush(get(i))) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
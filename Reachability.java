@@ -0,0 +1,150 @@
+import java.util.Arrays;
+
+/**
+ * Flood fill of the cells the PLAYER can walk to without pushing, and shortest walks between cells.
+ * <p>
+ * All the working memory is allocated once for the size of the grid: visited cells are marked with a
+ * stamp that changes on every fill instead of clearing an array, so a fill allocates nothing and can be
+ * run millions of times per second by a search.
+ * <p>
+ * Cells are indexed as row * col + column like the Board.
+ * */
+public class Reachability {
+    /* Direction offsets and input characters in the same order as GameLogic.direction */
+    private static final int[] DX = {-1, 1, 0, 0};
+    private static final int[] DY = {0, 0, -1, 1};
+    private static final char[] KEYS = {'L', 'R', 'U', 'D'};
+
+    private final int row;
+    private final int col;
+    private final int[] queue;
+    private final int[] stamp;
+    private final byte[] from;
+    private int mark;
+    private int count;
+
+    /**
+     * Allocate the working memory for a grid of the given size
+     *
+     * @param row Rows of the grid
+     * @param col Columns of the grid
+     */
+    public Reachability(int row, int col) {
+        this.row = row;
+        this.col = col;
+        queue = new int[row * col];
+        stamp = new int[row * col];
+        from = new byte[row * col];
+    }
+
+    /**
+     * Mark every cell reachable from the start cell through cells holding nothing
+     *
+     * @param board Board to walk on
+     * @param start Cell index of the PLAYER
+     */
+    public void compute(Board board, int start) {
+        fill(board, start, -1);
+    }
+
+    /**
+     * Check if the cell was reached by the last fill
+     *
+     * @param cell Cell index
+     * @return If reachable true, otherwise false
+     */
+    public boolean isReachable(int cell) {
+        return stamp[cell] == mark;
+    }
+
+    /**
+     * Return the number of cells reached by the last fill
+     *
+     * @return Reachable cells
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Return the smallest reachable cell of the last fill, the same for every PLAYER cell in the area
+     *
+     * @return Cell index
+     */
+    public int getNormalized() {
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            min = Math.min(min, queue[i]);
+        }
+        return min;
+    }
+
+    /**
+     * Write the shortest walk from the start cell to the target cell without pushing into the buffer.
+     * This replaces the last fill.
+     *
+     * @param board Board to walk on
+     * @param start Cell index of the PLAYER
+     * @param target Cell index to walk to
+     * @param path Buffer receiving the input characters, at least as long as the number of cells
+     * @return Length of the walk, or -1 if the target cannot be reached
+     */
+    public int findPath(Board board, int start, int target, char[] path) {
+        if (!fill(board, start, target)) {
+            return -1;
+        }
+        /* Walk the recorded directions back from the target, then reverse them */
+        int length = 0;
+        for (int cell = target; cell != start; ) {
+            int d = from[cell];
+            path[length++] = KEYS[d];
+            cell = (cell / col - DX[d]) * col + (cell % col - DY[d]);
+        }
+        for (int i = 0, j = length - 1; i < j; i++, j--) {
+            char key = path[i];
+            path[i] = path[j];
+            path[j] = key;
+        }
+        return length;
+    }
+
+    /**
+     * Breadth first fill from the start cell, stopping early once the target is reached
+     *
+     * @return If the target was reached true, otherwise false
+     */
+    private boolean fill(Board board, int start, int target) {
+        if (++mark == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            mark = 1;
+        }
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        stamp[start] = mark;
+        while (head < tail) {
+            int cell = queue[head++];
+            if (cell == target) {
+                count = tail;
+                return true;
+            }
+            int x = cell / col;
+            int y = cell % col;
+            for (int d = 0; d < 4; d++) {
+                int nextX = x + DX[d];
+                int nextY = y + DY[d];
+                if (nextX < 0 || nextX >= row || nextY < 0 || nextY >= col) {
+                    continue;
+                }
+                int next = nextX * col + nextY;
+                if (stamp[next] != mark && board.getType(next) == 0) {
+                    stamp[next] = mark;
+                    from[next] = (byte) d;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        count = tail;
+        return false;
+    }
+}
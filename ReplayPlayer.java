@@ -0,0 +1,220 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Playback of a file written by ReplayRecorder that can jump to any input.
+ * <p>
+ * Opening the file reads it once and indexes its runs of inputs and its checkpoints, without replaying
+ * anything. seek() restores the last checkpoint at or before the asked input into a GameLogic, along with
+ * the undo history, and applies only the inputs after it, so any input of a long session is reached
+ * with at most checkpointInterval moves.
+ * <p>
+ * Usage: java ReplayPlayer file [input] to print the size of the replay and the board after the given input
+ * */
+public class ReplayPlayer {
+    private final byte[] data;
+    private int validLength;
+    private int moveCount;
+
+    /* Every run: the input before which it starts, its input index in ReplayRecorder.KEYS */
+    private int[] runStarts = new int[64];
+    private byte[] runKeys = new byte[64];
+    private int runCount;
+
+    /* Every checkpoint: the inputs before it, the offset of its board, and the level it belongs to */
+    private int[] checkpointMoves = new int[16];
+    private int[] checkpointOffsets = new int[16];
+    private int[] checkpointLevels = new int[16];
+    private int checkpointCount;
+
+    private final GameLogic gameLogic = new GameLogic(1, 1);
+    private int restored = -1;
+    private int position;
+
+    /**
+     * Read and index a replay file
+     *
+     * @param file Replay file
+     * @throws IOException If the file cannot be read or is not a replay file
+     */
+    public ReplayPlayer(File file) throws IOException {
+        data = Files.readAllBytes(file.toPath());
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (data.length < 5 || in.readInt() != ReplayRecorder.MAGIC || in.readByte() != ReplayRecorder.VERSION) {
+            throw new IOException("Not a replay file");
+        }
+        validLength = 5;
+        int currentLevel = 0;
+        try {
+            while (validLength < data.length) {
+                int b = in.readUnsignedByte();
+                if (b == ReplayRecorder.LEVEL || b == ReplayRecorder.CHECKPOINT) {
+                    if (b == ReplayRecorder.LEVEL) {
+                        currentLevel = in.readInt();
+                    }
+                    int moves = in.readInt();
+                    int offset = data.length - in.available();
+                    Board.read(in);
+                    new MoveJournal().read(in);
+                    addCheckpoint(moves, offset, currentLevel);
+                } else if (b < ReplayRecorder.LEVEL && (b >>> 4) < ReplayRecorder.KEYS.length()) {
+                    if (runCount == runStarts.length) {
+                        runStarts = Arrays.copyOf(runStarts, runCount * 2);
+                        runKeys = Arrays.copyOf(runKeys, runCount * 2);
+                    }
+                    runStarts[runCount] = moveCount;
+                    runKeys[runCount] = (byte) (b >>> 4);
+                    runCount++;
+                    moveCount += (b & 15) + 1;
+                } else {
+                    break;
+                }
+                validLength = data.length - in.available();
+            }
+        } catch (EOFException err) {
+            /* The last record was cut short, everything before it is kept */
+        }
+    }
+
+    private void addCheckpoint(int moves, int offset, int level) {
+        if (checkpointCount == checkpointMoves.length) {
+            checkpointMoves = Arrays.copyOf(checkpointMoves, checkpointCount * 2);
+            checkpointOffsets = Arrays.copyOf(checkpointOffsets, checkpointCount * 2);
+            checkpointLevels = Arrays.copyOf(checkpointLevels, checkpointCount * 2);
+        }
+        checkpointMoves[checkpointCount] = moves;
+        checkpointOffsets[checkpointCount] = offset;
+        checkpointLevels[checkpointCount] = level;
+        checkpointCount++;
+    }
+
+    /**
+     * Return the number of recorded inputs
+     *
+     * @return Inputs
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Return the number of checkpoints, level starts included
+     *
+     * @return Checkpoints
+     */
+    public int getCheckpointCount() {
+        return checkpointCount;
+    }
+
+    /**
+     * Return the number of bytes of the file up to the last complete record
+     *
+     * @return Length in bytes
+     */
+    public int getValidLength() {
+        return validLength;
+    }
+
+    /**
+     * Return the input character at the given index
+     *
+     * @param index Input index, less than getMoveCount()
+     * @return One of L, R, U, D, Z, and Y
+     */
+    public char getKey(int index) {
+        int run = Arrays.binarySearch(runStarts, 0, runCount, index);
+        if (run < 0) {
+            run = -run - 2;
+        }
+        return ReplayRecorder.KEYS.charAt(runKeys[run]);
+    }
+
+    /**
+     * Restore the position after the given number of inputs into the GameLogic of the player
+     *
+     * @param index Number of inputs applied, from 0 to getMoveCount()
+     * @throws IOException If the checkpoint cannot be read
+     */
+    public void seek(int index) throws IOException {
+        index = Math.max(0, Math.min(index, moveCount));
+        int checkpoint = Arrays.binarySearch(checkpointMoves, 0, checkpointCount, index);
+        if (checkpoint < 0) {
+            checkpoint = -checkpoint - 2;
+        } else {
+            /* Several checkpoints at the same input: the last one is the newest position */
+            while (checkpoint + 1 < checkpointCount && checkpointMoves[checkpoint + 1] == index) {
+                checkpoint++;
+            }
+        }
+        if (checkpoint < 0) {
+            throw new IOException("No level started before input " + index);
+        }
+        /* Keep going from the current position when it was reached from the same checkpoint */
+        if (checkpoint != restored || position > index) {
+            int offset = checkpointOffsets[checkpoint];
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, offset, data.length - offset));
+            gameLogic.loadBoard(Board.read(in));
+            gameLogic.getJournal().read(in);
+            restored = checkpoint;
+            position = checkpointMoves[checkpoint];
+        }
+        for (; position < index; position++) {
+            char key = getKey(position);
+            switch (key) {
+                case 'Z' -> gameLogic.undo();
+                case 'Y' -> gameLogic.redo();
+                default -> gameLogic.move(key);
+            }
+        }
+    }
+
+    /**
+     * Return the GameLogic holding the position of the last seek
+     *
+     * @return GameLogic object
+     */
+    public GameLogic getGameLogic() {
+        return gameLogic;
+    }
+
+    /**
+     * Return the level of the position of the last seek
+     *
+     * @return Level number
+     */
+    public int getLevel() {
+        return restored < 0 ? 0 : checkpointLevels[restored];
+    }
+
+    /**
+     * Print the size of a replay and the board after the given input, the last one by default
+     *
+     * @param args Replay file, then an optional input index
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java ReplayPlayer file [input]");
+            return;
+        }
+        File file = new File(args[0]);
+        ReplayPlayer player = new ReplayPlayer(file);
+        int index = args.length > 1 ? Integer.parseInt(args[1]) : player.getMoveCount();
+        System.out.printf("%d inputs, %d checkpoints, %d bytes%n", player.getMoveCount(),
+                player.getCheckpointCount(), file.length());
+        long start = System.nanoTime();
+        player.seek(index);
+        GameLogic gameLogic = player.getGameLogic();
+        System.out.printf("Level %d after input %d (%.2f ms), %d / %d solutions occupied%n", player.getLevel(),
+                index, (System.nanoTime() - start) / 1e6, gameLogic.getBoxesOnGoals(), gameLogic.getGoalCount());
+        for (int y = 0; y < gameLogic.getCol(); y++) {
+            StringBuilder line = new StringBuilder();
+            for (int x = 0; x < gameLogic.getRow(); x++) {
+                int type = gameLogic.getBlockType(x, y);
+                line.append(gameLogic.isSolution(x, y) ? "+.*".charAt(type == 1 ? 0 : type == 3 ? 2 : 1)
+                        : " @#$".charAt(type));
+            }
+            System.out.println(line);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+import java.io.*;
+
+/**
+ * Append-only recorder of every input applied to a GameLogic, read back by ReplayPlayer.
+ * <p>
+ * File layout, big endian, after the header (magic "RPLY" and version):
+ * <ul>
+ * <li>a run byte, high bit clear: the input in bits 4 to 6 (0 to 3 the directions of GameLogic.direction,
+ * 4 undo, 5 redo) and the number of times it was repeated minus one in bits 0 to 3</li>
+ * <li>LEVEL: the level number as an int, then a checkpoint, written when a level starts</li>
+ * <li>CHECKPOINT: the board and the undo history, written every checkpointInterval inputs</li>
+ * </ul>
+ * A checkpoint is the number of inputs recorded before it as an int, the Board, then the MoveJournal.
+ * Repeated inputs are kept in memory until another input, a checkpoint, or close() writes their run,
+ * so a walk along a corridor takes one byte for up to 16 steps.
+ * */
+public class ReplayRecorder implements Closeable {
+    static final int MAGIC = 0x52504C59; // "RPLY"
+    static final int VERSION = 1;
+    static final int LEVEL = 0x80;
+    static final int CHECKPOINT = 0x81;
+    static final int MAX_RUN = 16;
+    static final String KEYS = "LRUDZY";
+
+    private final DataOutputStream out;
+    private final int checkpointInterval;
+    private int moves;
+    private int sinceCheckpoint;
+    private int runKey = -1;
+    private int runLength;
+
+    /**
+     * Open a replay file for appending, writing the header if the file is new. A record cut short by a
+     * crash at the end of the file is dropped first.
+     *
+     * @param file Replay file
+     * @param checkpointInterval Number of inputs between two checkpoints
+     * @throws IOException If the file cannot be written or is not a replay file
+     */
+    public ReplayRecorder(File file, int checkpointInterval) throws IOException {
+        this.checkpointInterval = checkpointInterval;
+        boolean exists = file.length() > 0;
+        if (exists) {
+            ReplayPlayer existing = new ReplayPlayer(file);
+            moves = existing.getMoveCount();
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(existing.getValidLength());
+            }
+        }
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+        if (!exists) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+        }
+    }
+
+    /**
+     * Return the number of inputs in the file, including the ones recorded before it was opened
+     *
+     * @return Recorded inputs
+     */
+    public synchronized int getMoveCount() {
+        return moves;
+    }
+
+    /**
+     * Record the start of a level with its board
+     *
+     * @param num Level number
+     * @param gameLogic GameLogic with the level just started
+     * @throws IOException If writing fails
+     */
+    public synchronized void startLevel(int num, GameLogic gameLogic) throws IOException {
+        flushRun();
+        out.writeByte(LEVEL);
+        out.writeInt(num);
+        writeCheckpoint(gameLogic);
+        out.flush();
+    }
+
+    /**
+     * Record an input applied to the GameLogic, writing a checkpoint after it when one is due
+     *
+     * @param key Input character, one of L, R, U, D, Z, and Y
+     * @param gameLogic GameLogic the input was applied to
+     * @throws IOException If writing fails
+     */
+    public synchronized void record(char key, GameLogic gameLogic) throws IOException {
+        int index = KEYS.indexOf(key);
+        if (index < 0) {
+            return;
+        }
+        if (index != runKey || runLength == MAX_RUN) {
+            flushRun();
+            runKey = index;
+        }
+        runLength++;
+        moves++;
+        if (++sinceCheckpoint >= checkpointInterval) {
+            flushRun();
+            out.writeByte(CHECKPOINT);
+            writeCheckpoint(gameLogic);
+            out.flush();
+        }
+    }
+
+    /**
+     * Write the pending run of inputs
+     */
+    private void flushRun() throws IOException {
+        if (runLength > 0) {
+            out.writeByte(runKey << 4 | (runLength - 1));
+        }
+        runKey = -1;
+        runLength = 0;
+    }
+
+    /**
+     * Write the input count, the board, and the undo history
+     */
+    private void writeCheckpoint(GameLogic gameLogic) throws IOException {
+        out.writeInt(moves);
+        gameLogic.getBoard().write(out);
+        gameLogic.getJournal().write(out);
+        sinceCheckpoint = 0;
+    }
+
+    /**
+     * Write the pending inputs to the file
+     *
+     * @throws IOException If writing fails
+     */
+    public synchronized void flush() throws IOException {
+        flushRun();
+        out.flush();
+    }
+
+    /**
+     * Write the pending inputs and close the file
+     *
+     * @throws IOException If writing fails
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        flushRun();
+        out.close();
+    }
+}
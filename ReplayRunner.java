@@ -0,0 +1,123 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Command line runner that replays recorded move sequences on every level in parallel without a display,
+ * reporting the ones that do not end the way they were recorded and the number of moves per second.
+ * <p>
+ * Every line of a replay file is "level moves [won|lost]", where moves is a string of L, R, U, and D
+ * and the expected outcome defaults to won. Blank lines and lines starting with # are skipped.
+ * <p>
+ * Usage: java ReplayRunner [-threads N] [-repeat N] file...
+ * */
+public class ReplayRunner {
+    /**
+     * A recorded move sequence with its expected outcome
+     */
+    private record Entry(String source, int level, String moves, boolean won) {
+    }
+
+    /**
+     * Replay every file given on the command line and exit with a non-zero status if one replay did
+     * not end as expected
+     *
+     * @param args Options and replay files
+     */
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int repeat = 1;
+        List<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-threads" -> threads = Integer.parseInt(args[++i]);
+                case "-repeat" -> repeat = Integer.parseInt(args[++i]);
+                default -> read(args[i], entries);
+            }
+        }
+        if (entries.isEmpty()) {
+            System.out.println("Usage: java ReplayRunner [-threads N] [-repeat N] file...");
+            return;
+        }
+
+        /* Every worker owns its engine and replays an interleaved share of the entries */
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<long[]>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            int step = threads;
+            int times = repeat;
+            futures.add(pool.submit(() -> {
+                GameEngine engine = new GameEngine(15, 15);
+                long moves = 0;
+                long failures = 0;
+                for (int r = 0; r < times; r++) {
+                    for (int i = first; i < entries.size(); i += step) {
+                        Entry entry = entries.get(i);
+                        GameEngine.Result result = engine.play(entry.level(), entry.moves());
+                        if (result == null) {
+                            failures++;
+                            if (r == 0) {
+                                System.out.println("FAIL " + entry.source() + ": level " + entry.level()
+                                        + " cannot be started");
+                            }
+                            continue;
+                        }
+                        moves += result.getMoves() + result.getBlocked();
+                        if (result.isWon() != entry.won()) {
+                            failures++;
+                            if (r == 0) {
+                                System.out.println("FAIL " + entry.source() + ": level " + entry.level()
+                                        + " expected " + (entry.won() ? "won" : "lost") + " after "
+                                        + result.getMoves() + " moves and " + result.getPushes() + " pushes");
+                            }
+                        }
+                    }
+                }
+                return new long[]{moves, failures};
+            }));
+        }
+        long moves = 0;
+        long failures = 0;
+        for (Future<long[]> future : futures) {
+            moves += future.get()[0];
+            failures += future.get()[1];
+        }
+        pool.shutdown();
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        System.out.printf("%d replays, %d failures, %d moves in %.3f s (%.0f moves/s) on %d threads%n",
+                (long) entries.size() * repeat, failures, moves, seconds, moves / seconds, threads);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Read the entries of a replay file
+     */
+    private static void read(String path, List<Entry> entries) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            String line;
+            int number = 0;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] tokens = line.split("\\s+");
+                boolean won = tokens.length < 3 || !tokens[2].equals("lost");
+                String moves = tokens.length > 1 ? tokens[1] : "";
+                entries.add(new Entry(path + ":" + number, Integer.parseInt(tokens[0]), moves, won));
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshot of a game in progress, so closing the game does not lose the progress.
+ * <p>
+ * Layout, big endian: magic "SAVE", version, level number, PLAYER X and Y, number of moves played, the
+ * packed Board, the MoveJournal, then a CRC32 of everything before it. The snapshot is written to a
+ * temporary file next to the save, forced to disk, and moved over the save in one atomic step, so a
+ * crash while saving leaves the previous save untouched. Loading a snapshot restores the board and the
+ * undo history without reading the level files.
+ * */
+public class SaveState {
+    private static final int MAGIC = 0x53415645; // "SAVE"
+    private static final int VERSION = 1;
+
+    /**
+     * Write the level loaded in the GameLogic to the save file, replacing it atomically and creating its
+     * directory if needed
+     *
+     * @param file Save file
+     * @param level Level number
+     * @param gameLogic GameLogic to save
+     * @throws IOException If the snapshot cannot be written
+     */
+    public static void save(File file, int level, GameLogic gameLogic) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        dir.mkdirs();
+        File temp = new File(dir, file.getName() + ".tmp");
+        boolean saved = false;
+        try {
+            try (FileOutputStream stream = new FileOutputStream(temp)) {
+                CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(stream), new CRC32());
+                DataOutputStream out = new DataOutputStream(checked);
+                Player player = gameLogic.getPlayer();
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                out.writeInt(level);
+                out.writeShort(player != null ? player.getX() : -1);
+                out.writeShort(player != null ? player.getY() : -1);
+                out.writeInt(gameLogic.getJournal().getPosition());
+                gameLogic.getBoard().write(out);
+                gameLogic.getJournal().write(out);
+                out.writeInt((int) checked.getChecksum().getValue());
+                out.flush();
+                stream.getFD().sync();
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException err) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            saved = true;
+        } finally {
+            /* A snapshot that could not be written or moved is not left next to the save */
+            if (!saved) {
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * Restore the snapshot of the save file into the GameLogic
+     *
+     * @param file Save file
+     * @param gameLogic GameLogic to restore into
+     * @return Level number of the snapshot, or -1 if there is no save file
+     * @throws IOException If the save file cannot be read or is damaged, leaving the GameLogic as it was
+     */
+    public static int load(File file, GameLogic gameLogic) throws IOException {
+        if (!file.exists()) {
+            return -1;
+        }
+        byte[] data = Files.readAllBytes(file.toPath());
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, Math.max(0, data.length - 4));
+        ByteArrayInputStream bytes = new ByteArrayInputStream(data);
+        DataInputStream in = new DataInputStream(bytes);
+        if (data.length < 9 || in.readInt() != MAGIC || in.readByte() != VERSION) {
+            throw new IOException("Not a save file: " + file);
+        }
+        if ((int) crc.getValue() != ByteBuffer.wrap(data, data.length - 4, 4).getInt()) {
+            throw new IOException("Damaged save file: " + file);
+        }
+        int level = in.readInt();
+        int x = in.readShort();
+        int y = in.readShort();
+        int moves = in.readInt();
+        Board board = Board.read(in);
+        /* Check the history before touching the GameLogic, then read it again into its journal */
+        bytes.mark(0);
+        MoveJournal journal = new MoveJournal();
+        journal.read(in);
+        if (journal.getPosition() != moves || x < 0 || x >= board.getRow() || y < 0 || y >= board.getCol()
+                || board.getType(x, y) != 1) {
+            throw new IOException("Inconsistent save file: " + file);
+        }
+        bytes.reset();
+
+        gameLogic.loadBoard(board);
+        gameLogic.getJournal().read(in);
+        return level;
+    }
+}
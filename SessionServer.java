@@ -0,0 +1,362 @@
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless server hosting many independent game sessions in one process, each with its own GameLogic.
+ * <p>
+ * Sessions are spread over shards by their id. A shard is a single thread that owns the sessions of the
+ * shard, so every command of a session runs on the same thread and a GameLogic is never shared between
+ * threads or locked. Commands of different shards run in parallel. Every session shares one Levels
+ * loader and LevelCache, so a level is read from disk once for the whole server.
+ * <p>
+ * Commands are text lines, answered by a single line starting with OK or ERR:
+ * <pre>
+ * NEW level           OK id
+ * MOVE id moves       OK applied moves pushes state    moves made of L, R, U, D, Z to undo, and Y to redo
+ * STATE id            OK level moves pushes occupied goals x y state
+ * RESTART id          OK
+ * CLOSE id            OK
+ * </pre>
+ * where state is won, deadlocked, or playing, applied is the number of inputs of the MOVE that were not
+ * blocked, and moves and pushes are the ones played in the level, so an undo takes its move back.
+ * QUIT closes the connection.
+ * <p>
+ * Usage: java SessionServer [-shards N] [-port N] to listen on localhost, 7070 by default, or
+ * java SessionServer -bench [-sessions N] [-moves N] [-level N] to measure the moves per second of
+ * every shard count up to twice the number of processors.
+ * */
+public class SessionServer implements Closeable {
+    private static final int defaultPort = 7070;
+
+    private final Shard[] shards;
+    private final Levels levels = new Levels();
+    private final LevelCache levelCache = new LevelCache(levels::load, 64);
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final LongAdder moves = new LongAdder();
+    private ServerSocket serverSocket;
+    private ExecutorService connections;
+
+    /**
+     * A thread with the sessions only it can touch
+     */
+    private static class Shard {
+        private final ExecutorService executor;
+        private final HashMap<Long, Session> sessions = new HashMap<>();
+
+        private Shard(int index) {
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "session-shard-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * A game being played, confined to its shard
+     */
+    private static class Session {
+        private final GameLogic gameLogic;
+        private final int level;
+
+        private Session(GameLogic gameLogic, int level) {
+            this.gameLogic = gameLogic;
+            this.level = level;
+        }
+    }
+
+    /**
+     * Initialize the server with the given number of shards
+     *
+     * @param shards Number of threads running the sessions
+     */
+    public SessionServer(int shards) {
+        this.shards = new Shard[Math.max(1, shards)];
+        for (int i = 0; i < this.shards.length; i++) {
+            this.shards[i] = new Shard(i);
+        }
+    }
+
+    /**
+     * Return the number of moves applied by every session since the server started
+     *
+     * @return Moves, including the blocked ones and the undone ones
+     */
+    public long getMoves() {
+        return moves.sum();
+    }
+
+    /**
+     * Run a command line on the shard of its session
+     *
+     * @param line Command line, see the class description for the commands
+     * @return Future of the answer line
+     */
+    public CompletableFuture<String> execute(String line) {
+        String[] tokens = line.trim().split("\\s+");
+        String command = tokens[0].toUpperCase();
+        try {
+            if (command.equals("NEW")) {
+                if (tokens.length != 2) {
+                    return CompletableFuture.completedFuture("ERR usage: NEW level");
+                }
+                int level = Integer.parseInt(tokens[1]);
+                long id = nextId.getAndIncrement();
+                Shard shard = shard(id);
+                return CompletableFuture.supplyAsync(() -> open(shard, id, level), shard.executor);
+            }
+            if (tokens.length < 2) {
+                return CompletableFuture.completedFuture("ERR unknown command: " + line.trim());
+            }
+            long id = Long.parseLong(tokens[1]);
+            Shard shard = shard(id);
+            String argument = tokens.length > 2 ? tokens[2] : "";
+            return CompletableFuture.supplyAsync(() -> {
+                Session session = shard.sessions.get(id);
+                if (session == null) {
+                    return "ERR no session " + id;
+                }
+                return switch (command) {
+                    case "MOVE" -> move(session, argument);
+                    case "STATE" -> state(session);
+                    case "RESTART" -> session.gameLogic.startLevel(session.level) ? "OK" : "ERR no level " + session.level;
+                    case "CLOSE" -> {
+                        shard.sessions.remove(id);
+                        yield "OK";
+                    }
+                    default -> "ERR unknown command: " + command;
+                };
+            }, shard.executor);
+        } catch (NumberFormatException err) {
+            return CompletableFuture.completedFuture("ERR not a number: " + err.getMessage());
+        }
+    }
+
+    /**
+     * Return the shard owning the session with the given id
+     */
+    private Shard shard(long id) {
+        return shards[(int) (id % shards.length)];
+    }
+
+    /**
+     * Start a session on the shard thread
+     */
+    private String open(Shard shard, long id, int level) {
+        GameLogic gameLogic = new GameLogic(15, 15, levels, levelCache);
+        if (!gameLogic.startLevel(level)) {
+            return "ERR no level " + level;
+        }
+        shard.sessions.put(id, new Session(gameLogic, level));
+        return "OK " + id;
+    }
+
+    /**
+     * Apply a move string to a session on its shard thread, stopping once the level is won
+     */
+    private String move(Session session, String keys) {
+        GameLogic gameLogic = session.gameLogic;
+        int applied = 0;
+        int i = 0;
+        for (; i < keys.length() && !gameLogic.isSolved(); i++) {
+            char key = Character.toUpperCase(keys.charAt(i));
+            int result = switch (key) {
+                case 'Z' -> gameLogic.undo();
+                case 'Y' -> gameLogic.redo();
+                default -> gameLogic.move(key);
+            };
+            if (result != GameLogic.BLOCKED) {
+                applied++;
+            }
+        }
+        moves.add(i);
+        MoveJournal journal = gameLogic.getJournal();
+        return "OK " + applied + " " + journal.getPosition() + " " + journal.getPushes() + " " + status(gameLogic);
+    }
+
+    /**
+     * Describe a session on its shard thread
+     */
+    private static String state(Session session) {
+        GameLogic gameLogic = session.gameLogic;
+        Player player = gameLogic.getPlayer();
+        MoveJournal journal = gameLogic.getJournal();
+        return "OK " + session.level + " " + journal.getPosition() + " " + journal.getPushes() + " "
+                + gameLogic.getBoxesOnGoals() + " " + gameLogic.getGoalCount() + " "
+                + (player != null ? player.getX() + " " + player.getY() : "-1 -1") + " " + status(gameLogic);
+    }
+
+    /**
+     * Return won, deadlocked, or playing
+     */
+    private static String status(GameLogic gameLogic) {
+        if (gameLogic.isSolved()) {
+            return "won";
+        }
+        return gameLogic.isDeadlocked() ? "deadlocked" : "playing";
+    }
+
+    /**
+     * Listen for connections on localhost, answering the command lines of every connection in order
+     *
+     * @param port TCP port, or 0 for any free port
+     * @return Port listened on
+     */
+    public int listen(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        connections = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "session-connection");
+            thread.setDaemon(true);
+            return thread;
+        });
+        connections.execute(() -> {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    connections.execute(() -> serve(socket));
+                } catch (IOException err) {
+                    if (!serverSocket.isClosed()) {
+                        err.printStackTrace();
+                    }
+                }
+            }
+        });
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Answer the command lines of one connection until it sends QUIT or closes
+     */
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null && !line.trim().equalsIgnoreCase("QUIT")) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                writer.write(execute(line).join());
+                writer.newLine();
+                /* Answer right away unless the client already sent the next command */
+                if (!reader.ready()) {
+                    writer.flush();
+                }
+            }
+        } catch (IOException err) {
+            /* The client went away */
+        }
+    }
+
+    /**
+     * Stop listening and stop every shard, dropping the sessions
+     */
+    @Override
+    public void close() throws IOException {
+        if (serverSocket != null) {
+            serverSocket.close();
+            connections.shutdownNow();
+        }
+        for (Shard shard : shards) {
+            shard.executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Serve on a port, or run the load test with -bench
+     *
+     * @param args Options
+     */
+    public static void main(String[] args) throws Exception {
+        int shardCount = Runtime.getRuntime().availableProcessors();
+        int port = defaultPort;
+        boolean bench = false;
+        int sessions = 2000;
+        int movesPerSession = 2000;
+        int level = 1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-shards" -> shardCount = Integer.parseInt(args[++i]);
+                case "-port" -> port = Integer.parseInt(args[++i]);
+                case "-bench" -> bench = true;
+                case "-sessions" -> sessions = Integer.parseInt(args[++i]);
+                case "-moves" -> movesPerSession = Integer.parseInt(args[++i]);
+                case "-level" -> level = Integer.parseInt(args[++i]);
+                default -> {
+                    System.out.println("Usage: java SessionServer [-shards N] [-port N] | -bench [-sessions N] [-moves N] [-level N]");
+                    return;
+                }
+            }
+        }
+        if (!bench) {
+            SessionServer server = new SessionServer(shardCount);
+            System.out.println("Listening on localhost:" + server.listen(port) + " with " + shardCount + " shards");
+            Thread.currentThread().join();
+            return;
+        }
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int shards = 1; shards <= 2 * processors; shards *= 2) {
+            System.out.printf("%d shards: %.0f moves/s%n", shards, loadTest(shards, sessions, movesPerSession, level));
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Open the sessions and send them random moves in batches of 50, as clients would
+     *
+     * @return Moves per second once every session was opened
+     */
+    private static double loadTest(int shards, int sessions, int movesPerSession, int level) throws IOException {
+        try (SessionServer server = new SessionServer(shards)) {
+            List<CompletableFuture<String>> opened = new ArrayList<>();
+            for (int i = 0; i < sessions; i++) {
+                opened.add(server.execute("NEW " + level));
+            }
+            long[] ids = new long[sessions];
+            for (int i = 0; i < sessions; i++) {
+                String answer = opened.get(i).join();
+                if (!answer.startsWith("OK")) {
+                    throw new IllegalStateException(answer);
+                }
+                ids[i] = Long.parseLong(answer.substring(3));
+            }
+
+            SplittableRandom random = new SplittableRandom(1);
+            String keys = "LRUD";
+            int batch = 50;
+            String[] commands = new String[64];
+            for (int i = 0; i < commands.length; i++) {
+                StringBuilder moves = new StringBuilder(batch);
+                for (int j = 0; j < batch; j++) {
+                    moves.append(keys.charAt(random.nextInt(4)));
+                }
+                commands[i] = moves.toString();
+            }
+
+            long start = System.nanoTime();
+            List<CompletableFuture<String>> pending = new ArrayList<>(sessions);
+            for (int sent = 0; sent < movesPerSession; sent += batch) {
+                pending.clear();
+                for (long id : ids) {
+                    pending.add(server.execute("MOVE " + id + " " + commands[random.nextInt(commands.length)]));
+                }
+                for (CompletableFuture<String> answer : pending) {
+                    answer.join();
+                }
+            }
+            long nanos = System.nanoTime() - start;
+            return server.getMoves() / (nanos / 1e9);
+        }
+    }
+}
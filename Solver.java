@@ -0,0 +1,557 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Automatic solver for the level currently loaded in a GameLogic.
+ * <p>
+ * The search is a push-optimal A* over packed states: the boxes are stored as a bitset of cell indices
+ * and the player is normalized to the smallest cell it can reach without pushing, so every walk between
+ * two pushes collapses into a single state. The move-optimal search keeps the square of the player after
+ * every push instead, and a push costs the walk to it plus one. The best nodes of the open list are
+ * expanded in batches across all cores with a ForkJoinPool, and the children of a batch are checked
+ * against the visited states on the searching thread. Visited states are kept by their Zobrist hash in
+ * a fixed-size TranspositionTable, so a state costs a few bytes instead of an object, and a state the
+ * table had to drop is at worst expanded twice.
+ * <p>
+ * The heuristic is the sum of the push distances of every box to its closest SOLUTION, which never
+ * overestimates the pushes nor the moves. Pushes onto a dead square or into a freeze deadlock are pruned
+ * with the Deadlock tables of the level.
+ * */
+public class Solver {
+    /* Direction offsets in the same order as the arrow keys L, R, U, D */
+    private static final int[] DX = {-1, 1, 0, 0};
+    private static final int[] DY = {0, 0, -1, 1};
+    private static final char[] KEYS = {'L', 'R', 'U', 'D'};
+
+    private final int row;
+    private final int col;
+    private final int cells;
+    private final int words;
+    private final int[] next;
+    private final Deadlock deadlock;
+    private final Zobrist zobrist;
+    private final ThreadLocal<Deadlock> deadlocks;
+    private final long[] startBoxes;
+    private final int startPlayer;
+    private final ForkJoinPool pool;
+    private final int batchSize;
+    private final long maxNodes;
+    private final ThreadLocal<int[]> queues;
+    private final ThreadLocal<int[]> stamps;
+    private final ThreadLocal<int[]> marks;
+    private final ThreadLocal<int[]> distances;
+    private final Cost cost;
+
+    /**
+     * What an optimal solution has the fewest of, compare() breaking ties with the other count
+     */
+    public enum Cost {
+        PUSHES,
+        MOVES;
+
+        /**
+         * Compare two solutions by this cost
+         *
+         * @param moves Moves of the first solution
+         * @param pushes Pushes of the first solution
+         * @param otherMoves Moves of the second solution
+         * @param otherPushes Pushes of the second solution
+         * @return Negative if the first solution is better, positive if it is worse, 0 if they are equal
+         */
+        public int compare(int moves, int pushes, int otherMoves, int otherPushes) {
+            return this == PUSHES
+                    ? pushes != otherPushes ? Integer.compare(pushes, otherPushes) : Integer.compare(moves, otherMoves)
+                    : moves != otherMoves ? Integer.compare(moves, otherMoves) : Integer.compare(pushes, otherPushes);
+        }
+    }
+
+    /**
+     * Result of a search containing the move string and the statistics of the search
+     */
+    public static class Result {
+        private final String moves;
+        private final int pushes;
+        private final long nodes;
+        private final long millis;
+
+        /**
+         * Initialize the result of a search
+         *
+         * @param moves Move string made of L, R, U, and D or null if no solution was found
+         * @param pushes Number of pushes of the solution
+         * @param nodes Number of expanded states
+         * @param millis Time spent in milliseconds
+         */
+        public Result(String moves, int pushes, long nodes, long millis) {
+            this.moves = moves;
+            this.pushes = pushes;
+            this.nodes = nodes;
+            this.millis = millis;
+        }
+
+        /**
+         * Return the move string, see GameKey for the characters
+         *
+         * @return Move string or null if the level is unsolved
+         */
+        public String getMoves() {
+            return moves;
+        }
+
+        /**
+         * Return if a solution was found
+         *
+         * @return If a solution was found true, otherwise false
+         */
+        public boolean isSolved() {
+            return moves != null;
+        }
+
+        /**
+         * Return the number of pushes of the solution
+         *
+         * @return Number of pushes
+         */
+        public int getPushes() {
+            return pushes;
+        }
+
+        /**
+         * Return the number of expanded states
+         *
+         * @return Number of expanded states
+         */
+        public long getNodes() {
+            return nodes;
+        }
+
+        /**
+         * Return the time spent searching
+         *
+         * @return Time in milliseconds
+         */
+        public long getMillis() {
+            return millis;
+        }
+    }
+
+    /**
+     * A packed search state with the link to its parent and the push that created it
+     */
+    private static class Node {
+        private final long[] boxes;
+        private final int player;
+        private final long boxHash;
+        private final long hash;
+        private final int g;
+        private final int h;
+        private final Node parent;
+        private final int pushFrom;
+        private final int pushDir;
+
+        private Node(long[] boxes, int player, long boxHash, long hash, int g, int h, Node parent, int pushFrom, int pushDir) {
+            this.boxes = boxes;
+            this.player = player;
+            this.boxHash = boxHash;
+            this.hash = hash;
+            this.g = g;
+            this.h = h;
+            this.parent = parent;
+            this.pushFrom = pushFrom;
+            this.pushDir = pushDir;
+        }
+    }
+
+    /**
+     * Initialize the solver from the level loaded in the given GameLogic, using all available cores
+     *
+     * @param gameLogic GameLogic with a started level
+     * @param maxNodes Maximum number of states to expand before giving up
+     */
+    public Solver(GameLogic gameLogic, long maxNodes) {
+        this(gameLogic, maxNodes, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Initialize the push-optimal solver from the level loaded in the given GameLogic
+     *
+     * @param gameLogic GameLogic with a started level
+     * @param maxNodes Maximum number of states to expand before giving up
+     * @param pool Pool used to expand the states in parallel
+     */
+    public Solver(GameLogic gameLogic, long maxNodes, ForkJoinPool pool) {
+        this(gameLogic, maxNodes, pool, Cost.PUSHES);
+    }
+
+    /**
+     * Initialize the solver from the level loaded in the given GameLogic
+     *
+     * @param gameLogic GameLogic with a started level
+     * @param maxNodes Maximum number of states to expand before giving up
+     * @param pool Pool used to expand the states in parallel
+     * @param cost PUSHES for a push-optimal solution, MOVES for a move-optimal one
+     */
+    public Solver(GameLogic gameLogic, long maxNodes, ForkJoinPool pool, Cost cost) {
+        this.cost = cost;
+        this.row = gameLogic.getRow();
+        this.col = gameLogic.getCol();
+        this.cells = row * col;
+        this.words = (cells + 63) >>> 6;
+        this.maxNodes = maxNodes;
+        this.pool = pool;
+        this.batchSize = Math.max(1, pool.getParallelism()) * 64;
+
+        /* Precompute the neighbour of every cell in every direction, -1 for a WALL or out of bound */
+        next = new int[cells * 4];
+        startBoxes = new long[words];
+        int player = 0;
+        for (int i = 0; i < row; i++) {
+            for (int j = 0; j < col; j++) {
+                int cell = i * col + j;
+                for (int d = 0; d < 4; d++) {
+                    int x = i + DX[d];
+                    int y = j + DY[d];
+                    boolean open = x > -1 && x < row && y > -1 && y < col && gameLogic.getBlockType(x, y) != 2;
+                    next[cell * 4 + d] = open ? x * col + y : -1;
+                }
+                switch (gameLogic.getBlockType(i, j)) {
+                    case 1 -> player = cell;
+                    case 3 -> startBoxes[cell >>> 6] |= 1L << cell;
+                }
+            }
+        }
+        startPlayer = player;
+
+        deadlock = gameLogic.getDeadlock();
+        zobrist = gameLogic.getZobrist();
+        deadlocks = ThreadLocal.withInitial(() -> new Deadlock(deadlock));
+        queues = ThreadLocal.withInitial(() -> new int[cells]);
+        stamps = ThreadLocal.withInitial(() -> new int[cells + 1]);
+        marks = ThreadLocal.withInitial(() -> new int[cells + 1]);
+        distances = ThreadLocal.withInitial(() -> new int[cells]);
+    }
+
+    /**
+     * Search for a solution of the level with the fewest pushes or moves, depending on the cost
+     *
+     * @return Result of the search
+     */
+    public Result solve() {
+        long start = System.currentTimeMillis();
+        int h = heuristic(startBoxes);
+        if (h < 0) {
+            return new Result(null, 0, 0, System.currentTimeMillis() - start);
+        }
+        if (h == 0) {
+            return new Result("", 0, 0, System.currentTimeMillis() - start);
+        }
+        long boxHash = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            if (isBox(startBoxes, cell)) {
+                boxHash ^= zobrist.box(cell);
+            }
+        }
+        int player = normalize(startBoxes, startPlayer);
+        Node root = new Node(startBoxes, player, boxHash, boxHash ^ zobrist.player(player), 0, h, null, -1, -1);
+
+        /* Two slots for every state the search may reach, at most 64 MB */
+        TranspositionTable table = new TranspositionTable((int) Math.max(1 << 12, Math.min(1 << 22, maxNodes * 2)));
+        PriorityQueue<Node> open = new PriorityQueue<>((a, b) -> a.g + a.h != b.g + b.h
+                ? Integer.compare(a.g + a.h, b.g + b.h) : Integer.compare(a.h, b.h));
+        table.put(root.hash, 0, 0);
+        open.add(root);
+
+        AtomicLong nodes = new AtomicLong();
+        Node[] best = new Node[1];
+        while (!open.isEmpty() && nodes.get() < maxNodes) {
+            if (best[0] != null && open.peek().g + open.peek().h >= best[0].g) {
+                break;
+            }
+
+            /* Take the best nodes of the open list, skipping the ones already reached with a lower cost */
+            List<Node> batch = new ArrayList<>(batchSize);
+            while (!open.isEmpty() && batch.size() < batchSize) {
+                Node node = open.poll();
+                if (best[0] != null && node.g + node.h >= best[0].g) {
+                    break;
+                }
+                int known = table.get(node.hash);
+                if (known == TranspositionTable.MISSING || known >= node.g) {
+                    batch.add(node);
+                }
+            }
+            nodes.addAndGet(batch.size());
+
+            ConcurrentLinkedQueue<Node> children = new ConcurrentLinkedQueue<>();
+            pool.invoke(new Expand(batch, 0, batch.size(), children));
+            for (Node child : children) {
+                /* Keep the children reaching a state for the first time or with a lower cost */
+                int known = table.get(child.hash);
+                if (known != TranspositionTable.MISSING && known <= child.g) {
+                    continue;
+                }
+                table.put(child.hash, child.g, child.g);
+                if (child.h == 0) {
+                    if (best[0] == null || child.g < best[0].g) {
+                        best[0] = child;
+                    }
+                } else {
+                    open.add(child);
+                }
+            }
+        }
+
+        long millis = System.currentTimeMillis() - start;
+        if (best[0] == null) {
+            return new Result(null, 0, nodes.get(), millis);
+        }
+        int pushes = 0;
+        for (Node node = best[0]; node.parent != null; node = node.parent) {
+            pushes++;
+        }
+        return new Result(buildMoves(best[0]), pushes, nodes.get(), millis);
+    }
+
+    /**
+     * Fork-join task expanding a slice of the batch
+     */
+    private class Expand extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Node> batch;
+        private final int from;
+        private final int to;
+        private final ConcurrentLinkedQueue<Node> children;
+
+        private Expand(List<Node> batch, int from, int to, ConcurrentLinkedQueue<Node> children) {
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+            this.children = children;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 8) {
+                for (int i = from; i < to; i++) {
+                    expand(batch.get(i), children);
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Expand(batch, from, mid, children), new Expand(batch, mid, to, children));
+            }
+        }
+    }
+
+    /**
+     * Generate every push available from the node that does not end in a deadlock
+     */
+    private void expand(Node node, ConcurrentLinkedQueue<Node> children) {
+        int[] stamp = stamps.get();
+        int[] distance = distances.get();
+        int mark = reach(node.boxes, node.player, stamp, distance);
+        for (int box = 0; box < cells; box++) {
+            if (!isBox(node.boxes, box)) {
+                continue;
+            }
+            for (int d = 0; d < 4; d++) {
+                int stand = next[box * 4 + (d ^ 1)];
+                int dest = next[box * 4 + d];
+                if (stand == -1 || dest == -1 || stamp[stand] != mark || isBox(node.boxes, dest) || deadlock.isDeadSquare(dest)) {
+                    continue;
+                }
+                long[] boxes = node.boxes.clone();
+                boxes[box >>> 6] &= ~(1L << box);
+                boxes[dest >>> 6] |= 1L << dest;
+                if (deadlocks.get().isFreezeDeadlock(dest, cell -> isBox(boxes, cell))) {
+                    continue;
+                }
+                int h = node.h - deadlock.getDistance(box) + deadlock.getDistance(dest);
+                int g = node.g + (cost == Cost.MOVES ? distance[stand] + 1 : 1);
+                int player = normalize(boxes, box);
+                long boxHash = node.boxHash ^ zobrist.box(box) ^ zobrist.box(dest);
+                children.add(new Node(boxes, player, boxHash, boxHash ^ zobrist.player(player), g, h, node, box, d));
+            }
+        }
+    }
+
+    /**
+     * Flood fill the cells reachable by the player without pushing, marking them in the given stamp array
+     * whose last slot holds the current mark so it never has to be cleared
+     *
+     * @param distance Array receiving the number of steps to every reachable cell, or null
+     * @return Mark written in the stamp array for the reachable cells
+     */
+    private int reach(long[] boxes, int player, int[] stamp, int[] distance) {
+        int[] queue = queues.get();
+        int mark = ++stamp[cells];
+        if (mark == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            mark = stamp[cells] = 1;
+        }
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = player;
+        stamp[player] = mark;
+        if (distance != null) {
+            distance[player] = 0;
+        }
+        while (head < tail) {
+            int cell = queue[head++];
+            for (int d = 0; d < 4; d++) {
+                int n = next[cell * 4 + d];
+                if (n != -1 && stamp[n] != mark && !isBox(boxes, n)) {
+                    stamp[n] = mark;
+                    queue[tail++] = n;
+                    if (distance != null) {
+                        distance[n] = distance[cell] + 1;
+                    }
+                }
+            }
+        }
+        return mark;
+    }
+
+    /**
+     * Return the smallest cell reachable by the player so that equivalent positions share one state,
+     * or the cell of the player itself when the walks are counted
+     */
+    private int normalize(long[] boxes, int player) {
+        if (cost == Cost.MOVES) {
+            return player;
+        }
+        int[] stamp = marks.get();
+        int mark = reach(boxes, player, stamp, null);
+        for (int cell = 0; cell < cells; cell++) {
+            if (stamp[cell] == mark) {
+                return cell;
+            }
+        }
+        return player;
+    }
+
+    /**
+     * Sum of the push distances of every box, -1 if a box sits on a dead square
+     */
+    private int heuristic(long[] boxes) {
+        int h = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            if (isBox(boxes, cell)) {
+                if (deadlock.isDeadSquare(cell)) {
+                    return -1;
+                }
+                h += deadlock.getDistance(cell);
+            }
+        }
+        return h;
+    }
+
+    private static boolean isBox(long[] boxes, int cell) {
+        return (boxes[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Rebuild the full move string by replaying the pushes from the start and walking between them
+     */
+    private String buildMoves(Node goal) {
+        ArrayList<Node> pushes = new ArrayList<>();
+        for (Node node = goal; node.parent != null; node = node.parent) {
+            pushes.add(node);
+        }
+        StringBuilder moves = new StringBuilder();
+        long[] boxes = startBoxes.clone();
+        int player = startPlayer;
+        int[] parent = new int[cells];
+        for (int i = pushes.size() - 1; i >= 0; i--) {
+            Node push = pushes.get(i);
+            int stand = next[push.pushFrom * 4 + (push.pushDir ^ 1)];
+            walk(boxes, player, stand, parent, moves);
+            moves.append(KEYS[push.pushDir]);
+            int dest = next[push.pushFrom * 4 + push.pushDir];
+            boxes[push.pushFrom >>> 6] &= ~(1L << push.pushFrom);
+            boxes[dest >>> 6] |= 1L << dest;
+            player = push.pushFrom;
+        }
+        return moves.toString();
+    }
+
+    /**
+     * Append the shortest walk from the player to the target cell without pushing any box
+     */
+    private void walk(long[] boxes, int player, int target, int[] parent, StringBuilder moves) {
+        int[] queue = queues.get();
+        Arrays.fill(parent, -1);
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = player;
+        parent[player] = player;
+        while (head < tail && parent[target] == -1) {
+            int cell = queue[head++];
+            for (int d = 0; d < 4; d++) {
+                int n = next[cell * 4 + d];
+                if (n != -1 && parent[n] == -1 && !isBox(boxes, n)) {
+                    parent[n] = cell;
+                    queue[tail++] = n;
+                }
+            }
+        }
+        StringBuilder path = new StringBuilder();
+        for (int cell = target; cell != player; cell = parent[cell]) {
+            int from = parent[cell];
+            for (int d = 0; d < 4; d++) {
+                if (next[from * 4 + d] == cell) {
+                    path.append(KEYS[d]);
+                    break;
+                }
+            }
+        }
+        moves.append(path.reverse());
+    }
+
+    /**
+     * Solve every given level and exit with a non-zero status if one of them has no solution,
+     * so the level files can be checked at build time
+     *
+     * @param args -moves for move-optimal solutions, then the level numbers to solve
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: java Solver [-moves] <level> [level...]");
+            return;
+        }
+        boolean failed = false;
+        Cost cost = Cost.PUSHES;
+        GameLogic gameLogic = new GameLogic(15, 15);
+        for (String arg : args) {
+            if (arg.equals("-moves")) {
+                cost = Cost.MOVES;
+                continue;
+            }
+            int num = Integer.parseInt(arg);
+            if (!gameLogic.startLevel(num)) {
+                System.out.println("Level " + num + ": could not be started");
+                failed = true;
+                continue;
+            }
+            Result result = new Solver(gameLogic, 5_000_000, ForkJoinPool.commonPool(), cost).solve();
+            if (result.isSolved()) {
+                System.out.println("Level " + num + ": " + result.getPushes() + " pushes, "
+                        + result.getMoves().length() + " moves, " + result.getNodes() + " states, "
+                        + result.getMillis() + " ms");
+                System.out.println(result.getMoves());
+            } else {
+                System.out.println("Level " + num + ": no solution found after " + result.getNodes() + " states");
+                failed = true;
+            }
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Cache of pre-rendered tiles so a frame is drawn with image blits instead of a color change and a
+ * fill per block. Every block type is rendered once on its own and once on top of a SOLUTION square,
+ * and the static parts of a level (nothing, walls, and solutions) are rendered into a background layer.
+ * The background image is kept and drawn over again for the next level or camera position, and only
+ * created again when the size of the viewport changes.
+ * <p>
+ * Images are created compatible with the screen when a GraphicsConfiguration is available so Java2D can
+ * keep them in video memory as managed images.
+ * */
+public class TileAtlas {
+    private final int tileSize;
+    private final GraphicsConfiguration config;
+    private final BufferedImage[][] tiles;
+    private BufferedImage background;
+    private Graphics2D backgroundGraphics;
+
+    /**
+     * Render every tile of the atlas
+     *
+     * @param tileSize Size in pixels of a tile
+     * @param config Screen configuration for compatible images, may be null when there is no screen
+     */
+    public TileAtlas(int tileSize, GraphicsConfiguration config) {
+        this.tileSize = tileSize;
+        this.config = config;
+        tiles = new BufferedImage[2][4];
+        for (int type = 0; type < 4; type++) {
+            tiles[0][type] = renderTile(type, false);
+            tiles[1][type] = renderTile(type, true);
+        }
+    }
+
+    /**
+     * Pick a color depending on the block type and return that respective color object
+     *
+     * @param type a number represented by block type, see Board for the types, or 4 for a solution
+     * @return Color of the block type
+     * */
+    public static Color colorPicker(int type) {
+        return switch (type) {
+            case 0 -> Color.BLACK;
+            case 1 -> Color.BLUE;
+            case 2 -> Color.WHITE;
+            case 3 -> Color.RED;
+            case 4 -> Color.GREEN;
+            default -> null;
+        };
+    }
+
+    /**
+     * Return the size in pixels of a tile
+     *
+     * @return Tile size
+     */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Return the pre-rendered tile of a block type
+     *
+     * @param type Block type
+     * @param solution If the block is on a solution
+     * @return Tile image
+     */
+    public BufferedImage getTile(int type, boolean solution) {
+        return tiles[solution ? 1 : 0][type];
+    }
+
+    /**
+     * Render the static layer of the level in the given GameLogic for a viewport of the grid:
+     * nothing, walls, and solutions. Tiles outside the grid are drawn as nothing.
+     *
+     * @param gameLogic GameLogic with a started level
+     * @param firstX Coordinate X of the top left tile of the viewport
+     * @param firstY Coordinate Y of the top left tile of the viewport
+     * @param columns Number of tiles across the viewport
+     * @param rows Number of tiles down the viewport
+     * @return Image of the viewport without the player and the pushable objects, the same image as the
+     * previous call for a viewport of the same size
+     */
+    public BufferedImage renderBackground(GameLogic gameLogic, int firstX, int firstY, int columns, int rows) {
+        if (background == null || background.getWidth() != columns * tileSize || background.getHeight() != rows * tileSize) {
+            if (backgroundGraphics != null) {
+                backgroundGraphics.dispose();
+            }
+            background = createImage(columns * tileSize, rows * tileSize);
+            backgroundGraphics = background.createGraphics();
+        }
+        Graphics2D g = backgroundGraphics;
+        for (int i = 0; i < columns; i++) {
+            for (int j = 0; j < rows; j++) {
+                int x = firstX + i;
+                int y = firstY + j;
+                boolean inside = gameLogic.isInside(x, y);
+                int type = inside && gameLogic.getBlockType(x, y) == 2 ? 2 : 0;
+                g.drawImage(getTile(type, inside && gameLogic.isSolution(x, y)), i * tileSize, j * tileSize, null);
+            }
+        }
+        return background;
+    }
+
+    /**
+     * Draw one tile the same way the panel used to draw it directly
+     */
+    private BufferedImage renderTile(int type, boolean solution) {
+        BufferedImage image = createImage(tileSize, tileSize);
+        Graphics2D g = image.createGraphics();
+        g.setColor(colorPicker(0));
+        g.fillRect(0, 0, tileSize, tileSize);
+        if (solution) {
+            if (type == 3) {
+                g.setColor(colorPicker(type + 1));
+                g.fillRect(0, 0, tileSize, tileSize);
+            } else if (type == 1) {
+                g.setColor(colorPicker(type));
+                g.fillRect(0, 0, tileSize, tileSize);
+            } else {
+                g.setColor(colorPicker(3));
+                g.fillOval(0, 0, tileSize, tileSize);
+            }
+        } else {
+            g.setColor(colorPicker(type));
+            g.fillRect(0, 0, tileSize, tileSize);
+        }
+        g.dispose();
+        return image;
+    }
+
+    private BufferedImage createImage(int width, int height) {
+        if (config != null) {
+            return config.createCompatibleImage(width, height);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+}
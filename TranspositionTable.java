@@ -0,0 +1,179 @@
+import java.util.Arrays;
+
+/**
+ * Fixed-size table from 64-bit position hashes (see Zobrist) to an int value, such as a search cost or a
+ * move index, stored in primitive arrays with open addressing.
+ * <p>
+ * A key is looked up in a bucket of 4 consecutive slots. When the bucket is full, the entry with the
+ * smallest depth is replaced if it is not deeper than the new one, so expensive results survive cheap ones.
+ * The key 0 marks an empty slot, a hash of 0 is stored as 1.
+ * */
+public class TranspositionTable {
+    public static final int MISSING = Integer.MIN_VALUE;
+    private static final int BUCKET = 4;
+
+    private final long[] keys;
+    private final int[] values;
+    private final int[] depths;
+    private final int mask;
+    private long hits;
+    private long misses;
+    private long stores;
+    private long replacements;
+    private long rejected;
+    private int size;
+
+    /**
+     * Initialize the table with room for at least the given number of entries
+     *
+     * @param capacity Minimum number of entries, rounded up to a power of two
+     */
+    public TranspositionTable(int capacity) {
+        int slots = Integer.highestOneBit(Math.max(BUCKET, capacity - 1)) << 1;
+        keys = new long[slots];
+        values = new int[slots];
+        depths = new int[slots];
+        mask = slots - 1;
+    }
+
+    /**
+     * Return the value stored for the hash
+     *
+     * @param hash Position hash
+     * @return Stored value, or MISSING if the hash is not in the table
+     */
+    public int get(long hash) {
+        long key = hash == 0 ? 1 : hash;
+        int start = bucket(key);
+        for (int i = 0; i < BUCKET; i++) {
+            int slot = (start + i) & mask;
+            if (keys[slot] == key) {
+                hits++;
+                return values[slot];
+            }
+            if (keys[slot] == 0) {
+                break;
+            }
+        }
+        misses++;
+        return MISSING;
+    }
+
+    /**
+     * Store a value for the hash, updating the entry if the hash is already in the table
+     *
+     * @param hash Position hash
+     * @param value Value to store
+     * @param depth Importance of the entry for the replacement policy
+     * @return If the value was stored true, false if the bucket was full of deeper entries
+     */
+    public boolean put(long hash, int value, int depth) {
+        long key = hash == 0 ? 1 : hash;
+        int start = bucket(key);
+        int victim = -1;
+        for (int i = 0; i < BUCKET; i++) {
+            int slot = (start + i) & mask;
+            if (keys[slot] == key || keys[slot] == 0) {
+                if (keys[slot] == 0) {
+                    size++;
+                }
+                store(slot, key, value, depth);
+                return true;
+            }
+            if (victim == -1 || depths[slot] < depths[victim]) {
+                victim = slot;
+            }
+        }
+        if (depths[victim] > depth) {
+            rejected++;
+            return false;
+        }
+        replacements++;
+        store(victim, key, value, depth);
+        return true;
+    }
+
+    private void store(int slot, long key, int value, int depth) {
+        keys[slot] = key;
+        values[slot] = value;
+        depths[slot] = depth;
+        stores++;
+    }
+
+    private int bucket(long key) {
+        /* Mix the high bits in since the low bits of neighbouring positions may be close */
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    /**
+     * Remove every entry and reset the statistics
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        hits = misses = stores = replacements = rejected = 0;
+        size = 0;
+    }
+
+    /**
+     * Return the number of slots of the table
+     *
+     * @return Capacity
+     */
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    /**
+     * Return the number of occupied slots
+     *
+     * @return Entries
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Return the number of lookups that found their hash
+     *
+     * @return Hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Return the number of lookups that did not find their hash
+     *
+     * @return Misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Return the number of entries written
+     *
+     * @return Stores
+     */
+    public long getStores() {
+        return stores;
+    }
+
+    /**
+     * Return the number of entries that overwrote another position
+     *
+     * @return Replacements
+     */
+    public long getReplacements() {
+        return replacements;
+    }
+
+    /**
+     * Return the number of entries not stored because their bucket held deeper entries
+     *
+     * @return Rejected stores
+     */
+    public long getRejected() {
+        return rejected;
+    }
+}
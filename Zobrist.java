@@ -0,0 +1,97 @@
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist keys for the cells of a grid: one random 64-bit key per cell for a PUSHABLE OBJECT, for the PLAYER,
+ * for a WALL, and for a SOLUTION. The hash of a position is the XOR of the keys of what it contains, so a move
+ * updates it with two XORs per changed block.
+ * <p>
+ * The keys come from a fixed seed so the same position always has the same hash, across runs and across
+ * level packs.
+ * */
+public class Zobrist {
+    private static final long SEED = 0x5EED_B10C_C0DEL;
+
+    private final long[] boxKeys;
+    private final long[] playerKeys;
+    private final long[] wallKeys;
+    private final long[] goalKeys;
+
+    /**
+     * Generate the keys for a grid with the given number of cells
+     *
+     * @param cells Number of cells
+     */
+    public Zobrist(int cells) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        boxKeys = new long[cells];
+        playerKeys = new long[cells];
+        wallKeys = new long[cells];
+        goalKeys = new long[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            boxKeys[cell] = random.nextLong();
+            playerKeys[cell] = random.nextLong();
+            wallKeys[cell] = random.nextLong();
+            goalKeys[cell] = random.nextLong();
+        }
+    }
+
+    /**
+     * Return the key of a PUSHABLE OBJECT on the cell
+     *
+     * @param cell Cell index
+     * @return Zobrist key
+     */
+    public long box(int cell) {
+        return boxKeys[cell];
+    }
+
+    /**
+     * Return the key of the PLAYER on the cell
+     *
+     * @param cell Cell index
+     * @return Zobrist key
+     */
+    public long player(int cell) {
+        return playerKeys[cell];
+    }
+
+    /**
+     * Hash the position of a board: its PUSHABLE OBJECTS and its PLAYER
+     *
+     * @param board Board to hash
+     * @return Position hash
+     */
+    public long hashPosition(Board board) {
+        long hash = 0;
+        int cells = board.getRow() * board.getCol();
+        for (int cell = 0; cell < cells; cell++) {
+            switch (board.getType(cell)) {
+                case 1 -> hash ^= playerKeys[cell];
+                case 3 -> hash ^= boxKeys[cell];
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Hash a whole level: its position along with its WALLS and SOLUTIONS, to find duplicate levels
+     *
+     * @param board Board to hash
+     * @return Level hash
+     */
+    public long hashLevel(Board board) {
+        long hash = hashPosition(board);
+        for (int i = 0; i < board.getRow(); i++) {
+            for (int j = 0; j < board.getCol(); j++) {
+                int cell = board.index(i, j);
+                if (board.getType(cell) == 2) {
+                    hash ^= wallKeys[cell];
+                }
+                if (board.isGoal(i, j)) {
+                    hash ^= goalKeys[cell];
+                }
+            }
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,94 @@
+import bench.Game;
+
+import java.awt.Graphics2D;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Game seen by the benchmarks, see bench.Game for why it is reached through an interface.
+ * <p>
+ * The cold GameLogic keeps no level in its LevelCache, so every startLevel reads and parses the level files.
+ * Its loader only loads the level being started, so the prefetch of the next level finds nothing and is not
+ * tried again, and no background load competes with the measurement.
+ * */
+public class GameFixture implements Game {
+    private final Levels levels = new Levels();
+    private final GameLogic cold;
+    private final GameLogic cached = new GameLogic(15, 15);
+    private final GameEngine engine = new GameEngine(15, 15);
+    private final BestSolutions bestSolutions;
+    private int coldLevel;
+    private GamePanel panel;
+
+    /**
+     * Initialize the loaders of the levels and read the best known solutions
+     */
+    public GameFixture() {
+        cold = new GameLogic(15, 15, levels, new LevelCache(num -> num == coldLevel ? levels.load(num) : null, 0));
+        try {
+            bestSolutions = new BestSolutions(BestSolutions.defaultFile());
+        } catch (IOException err) {
+            throw new UncheckedIOException(err);
+        }
+    }
+
+    @Override
+    public int loadLevel(int num) {
+        levels.loadLevel(num);
+        return levels.getLevel().length;
+    }
+
+    @Override
+    public int loadSolution(int num) {
+        levels.loadSolution(num);
+        return levels.getSolution().length;
+    }
+
+    @Override
+    public int startLevelCold(int num) {
+        coldLevel = num;
+        cold.startLevel(num);
+        return cold.getGoalCount();
+    }
+
+    @Override
+    public int startLevelCached(int num) {
+        cached.startLevel(num);
+        return cached.getGoalCount();
+    }
+
+    @Override
+    public int play(int num) {
+        BestSolutions.Entry best = bestSolutions.get(num, Solver.Cost.PUSHES);
+        if (best == null) {
+            throw new IllegalStateException("No known solution of level " + num + " in " + BestSolutions.defaultFile());
+        }
+        return engine.play(num, best.line()).getMoves();
+    }
+
+    @Override
+    public boolean isSolved() {
+        return cached.isSolved();
+    }
+
+    /**
+     * Create the panel, which needs -Djava.awt.headless=true without a display. The save, the scores, and
+     * the replay are turned off first, so the panel leaves the files of the player alone whatever the JVM
+     * was started with.
+     */
+    @Override
+    public int[] openPanel() {
+        System.setProperty("game.save", "");
+        System.setProperty("game.scores", "");
+        System.setProperty("game.replay", "");
+        panel = new GamePanel();
+        panel.stopGame();
+        panel.setSize(panel.getPreferredSize());
+        return new int[]{panel.getWidth(), panel.getHeight()};
+    }
+
+    @Override
+    public void draw(Graphics2D g) {
+        panel.draw(g);
+    }
+}
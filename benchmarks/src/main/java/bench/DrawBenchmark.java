@@ -0,0 +1,55 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drawing a whole frame of the GamePanel offscreen into a BufferedImage.
+ * The fork runs headless, and GameFixture turns off the save, the scores, and the replay of the panel, so
+ * it writes no file even when run without a fork.
+ * */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class DrawBenchmark {
+    private Game game;
+    private BufferedImage image;
+    private Graphics2D g;
+
+    /**
+     * Create the panel and the image it is drawn into
+     */
+    @Setup
+    public void setUp() {
+        game = Game.open();
+        int[] size = game.openPanel();
+        image = new BufferedImage(size[0], size[1], BufferedImage.TYPE_INT_RGB);
+        g = image.createGraphics();
+        g.setClip(0, 0, size[0], size[1]);
+    }
+
+    /**
+     * Release the graphics of the image
+     */
+    @TearDown
+    public void tearDown() {
+        g.dispose();
+    }
+
+    /**
+     * Draw the panel
+     *
+     * @return Color of the top left pixel
+     */
+    @Benchmark
+    public int draw() {
+        game.draw(g);
+        return image.getRGB(0, 0);
+    }
+}
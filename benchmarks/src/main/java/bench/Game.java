@@ -0,0 +1,92 @@
+package bench;
+
+import java.awt.Graphics2D;
+
+/**
+ * Operations of the game measured by the benchmarks.
+ * <p>
+ * The game classes are in the default package, which a class of a named package cannot refer to, and JMH
+ * only runs benchmarks of a named package. The benchmarks therefore reach the game through this interface,
+ * implemented by GameFixture in the default package of this module. It has a single implementation, so the
+ * JIT inlines its calls into the benchmarks.
+ * <p>
+ * Usage, from the root of the repository: mvn -B package, then
+ * java -Dgame.dir=. -jar benchmarks/target/benchmarks.jar [JMH options] [benchmark filter]
+ * */
+public interface Game {
+    /**
+     * Return a new game with its levels read from the directory given by -Dgame.dir
+     *
+     * @return Game
+     */
+    static Game open() {
+        try {
+            return (Game) Class.forName("GameFixture").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException err) {
+            throw new IllegalStateException("GameFixture is missing from the class path", err);
+        }
+    }
+
+    /**
+     * Parse the level file of a level with Levels.loadLevel
+     *
+     * @param num Level number
+     * @return Number of rows parsed
+     */
+    int loadLevel(int num);
+
+    /**
+     * Parse the solution file of a level with Levels.loadSolution
+     *
+     * @param num Level number
+     * @return Number of rows parsed
+     */
+    int loadSolution(int num);
+
+    /**
+     * Start a level with GameLogic.startLevel, reading its files every time
+     *
+     * @param num Level number
+     * @return Number of solutions of the level
+     */
+    int startLevelCold(int num);
+
+    /**
+     * Start a level with GameLogic.startLevel, served from the LevelCache after the first time
+     *
+     * @param num Level number
+     * @return Number of solutions of the level
+     */
+    int startLevelCached(int num);
+
+    /**
+     * Start a level and apply its best known push-optimal solution with GameLogic.move, the way
+     * GamePanel.checkCollision applies the keys of the player
+     *
+     * @param num Level number
+     * @return Number of moves applied
+     */
+    int play(int num);
+
+    /**
+     * Check the level started last with GameLogic.isSolved, the check GamePanel.checkSolution makes after
+     * every move
+     *
+     * @return If solved true, otherwise false
+     */
+    boolean isSolved();
+
+    /**
+     * Create a GamePanel and stop its game loop, so only the benchmark draws it
+     *
+     * @return Width and height of the panel
+     */
+    int[] openPanel();
+
+    /**
+     * Draw the whole panel with GamePanel.draw
+     *
+     * @param g Graphics of the image to draw into
+     */
+    void draw(Graphics2D g);
+}
@@ -0,0 +1,72 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starting a level with GameLogic.startLevel, with its files read or from the LevelCache, applying a
+ * solution move by move, and the solved check made after every move
+ * */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameLogicBenchmark {
+    @Param("4")
+    int level;
+
+    private Game game;
+
+    /**
+     * Create the game and start the level once, so the cached benchmarks never read the files
+     */
+    @Setup
+    public void setUp() {
+        game = Game.open();
+        game.startLevelCached(level);
+    }
+
+    /**
+     * Start the level, reading its files
+     *
+     * @return Number of solutions of the level
+     */
+    @Benchmark
+    public int startLevelCold() {
+        return game.startLevelCold(level);
+    }
+
+    /**
+     * Start the level from the LevelCache
+     *
+     * @return Number of solutions of the level
+     */
+    @Benchmark
+    public int startLevelCached() {
+        return game.startLevelCached(level);
+    }
+
+    /**
+     * Start the level and apply its best known solution
+     *
+     * @return Number of moves applied
+     */
+    @Benchmark
+    public int play() {
+        return game.play(level);
+    }
+
+    /**
+     * Check if the started level is solved
+     *
+     * @return If solved true, otherwise false
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean isSolved() {
+        return game.isSolved();
+    }
+}
@@ -0,0 +1,49 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the level files with Levels.loadLevel and Levels.loadSolution
+ * */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LevelsBenchmark {
+    @Param("4")
+    int level;
+
+    private Game game;
+
+    /**
+     * Create the game
+     */
+    @Setup
+    public void setUp() {
+        game = Game.open();
+    }
+
+    /**
+     * Parse the level file
+     *
+     * @return Number of rows parsed
+     */
+    @Benchmark
+    public int loadLevel() {
+        return game.loadLevel(level);
+    }
+
+    /**
+     * Parse the solution file
+     *
+     * @return Number of rows parsed
+     */
+    @Benchmark
+    public int loadSolution() {
+        return game.loadSolution(level);
+    }
+}